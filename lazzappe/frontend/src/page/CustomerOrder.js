@@ -63,15 +63,29 @@ export default function CustomerOrders() {
 
 
 
+  // The endpoint is paged; keep reading until it reports no more pages
   const fetchOrders = async (customerId) => {
     try {
       setLoading(true);
-      const response = await fetch(`http://localhost:8080/api/orders/customer/${customerId}`);
-      
-      if (response.ok) {
+      const all = [];
+      let page = 0;
+      let hasMore = true;
+      let loaded = true;
+      while (hasMore) {
+        const response = await fetch(`http://localhost:8080/api/orders/customer/${customerId}?page=${page}&size=100`);
+        if (!response.ok) {
+          loaded = false;
+          break;
+        }
         const data = await response.json();
-        setOrders(data);
-        setFilteredOrders(data);
+        all.push(...(data.items || []));
+        hasMore = !!data.has_more;
+        page++;
+      }
+
+      if (loaded) {
+        setOrders(all);
+        setFilteredOrders(all);
       } else {
         // Fallback to localStorage if API not available
         const storedOrders = JSON.parse(localStorage.getItem('orders') || '[]');
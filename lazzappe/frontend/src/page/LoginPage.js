@@ -96,7 +96,8 @@ const LoginForm = () => {
       // After login, switch role to SELLER then back to CUSTOMER to initialize seller profile
       if (userToStore.user_id) {
         try {
-          const token = localStorage.getItem('token');
+          // Each switch retires the token it was sent with, so carry the returned one forward
+          let token = localStorage.getItem('token');
           
           // Switch to SELLER - userId removed, backend gets user from JWT token
           const switchToSellerResponse = await fetch("http://localhost:8080/api/auth/switch-role", {
@@ -109,6 +110,10 @@ const LoginForm = () => {
           });
           if (switchToSellerResponse.ok) {
             const switchData = await switchToSellerResponse.json();
+            if (switchData.token) {
+              token = switchData.token;
+              localStorage.setItem('token', token);
+            }
             userToStore.role = 'SELLER';
             userToStore.seller_id = switchData.seller_id || null;
             localStorage.setItem("user", JSON.stringify(userToStore));
@@ -125,6 +130,7 @@ const LoginForm = () => {
           });
           if (switchToCustomerResponse.ok) {
             const switchBackData = await switchToCustomerResponse.json();
+            if (switchBackData.token) localStorage.setItem('token', switchBackData.token);
             userToStore.role = 'CUSTOMER';
             userToStore.seller_id = null;
             localStorage.setItem("user", JSON.stringify(userToStore));
@@ -71,18 +71,26 @@ export default function ManageOrders() {
     }
   };
 
+  // The endpoint is paged; keep reading until it reports no more pages
   const fetchOrders = async (sellerId) => {
     try {
       setLoading(true);
-      const response = await fetch(`http://localhost:8080/api/orders/seller/${sellerId}`);
-      
-      if (response.ok) {
+      const all = [];
+      let page = 0;
+      let hasMore = true;
+      while (hasMore) {
+        const response = await fetch(`http://localhost:8080/api/orders/seller/${sellerId}?page=${page}&size=100`);
+        if (!response.ok) {
+          console.error('Failed to fetch orders');
+          break;
+        }
         const data = await response.json();
-        setOrders(data);
-        setFilteredOrders(data);
-      } else {
-        console.error('Failed to fetch orders');
+        all.push(...(data.items || []));
+        hasMore = !!data.has_more;
+        page++;
       }
+      setOrders(all);
+      setFilteredOrders(all);
     } catch (error) {
       console.error('Error fetching orders:', error);
     } finally {
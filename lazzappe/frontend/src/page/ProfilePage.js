@@ -387,6 +387,8 @@ export default function ProfilePage() {
       
       const data = await response.json();
       console.log('[RoleSwitch] Response received:', data);
+      // The old token carries the old role and is revoked; use the one issued for the new role
+      if (data.token) localStorage.setItem('token', data.token);
       
       const updatedProfile = { ...profile, ...data, role: data.role };
       setProfile(updatedProfile);
@@ -0,0 +1,83 @@
+package com.lazzappe.lazzappe;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.lazzappe.lazzappe.entity.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory entity graphs for the benchmarks, shaped like the data the controllers see.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    // Same settings Spring Boot applies to its ObjectMapper
+    public static ObjectMapper objectMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    public static User user(long id, String username, boolean seller) {
+        User user = new User();
+        user.setUser_id(id);
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        user.setCurrentRole(seller ? "SELLER" : "CUSTOMER");
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setUser(user);
+        customer.setShippingAddress("123 Benchmark St");
+        user.setCustomer(customer);
+        if (seller) {
+            Seller s = new Seller();
+            s.setId(id);
+            s.setUser(user);
+            s.setStoreName(username + "'s Store");
+            user.setSeller(s);
+        }
+        return user;
+    }
+
+    public static List<Product> products(int count, Seller seller) {
+        List<Product> products = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            Product p = new Product("Product " + i, "Description for product " + i + " with some typical length text",
+                    BigDecimal.valueOf(100 + i, 2).add(BigDecimal.valueOf(i)), 50 + i,
+                    "https://cdn.example.com/img/" + i + ".jpg", "Category " + (i % 8), seller);
+            p.setId((long) i + 1);
+            p.setCreatedAt(now.minusMinutes(i));
+            products.add(p);
+        }
+        return products;
+    }
+
+    public static List<Order> orders(int count, int itemsPerOrder, Customer customer, List<Product> products) {
+        List<Order> orders = new ArrayList<>(count);
+        long itemId = 1;
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(customer, BigDecimal.ZERO, "123 Benchmark St", "COD");
+            order.setId((long) i + 1);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int j = 0; j < itemsPerOrder; j++) {
+                Product p = products.get((i * itemsPerOrder + j) % products.size());
+                OrderItem item = new OrderItem(order, p, 1 + j, p.getPrice());
+                item.setId(itemId++);
+                order.getOrderItems().add(item);
+                total = total.add(item.getSubtotal());
+            }
+            order.setTotalAmount(total);
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,75 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.BenchmarkFixtures;
+import com.lazzappe.lazzappe.entity.Order;
+import com.lazzappe.lazzappe.entity.OrderItem;
+import com.lazzappe.lazzappe.entity.Product;
+import com.lazzappe.lazzappe.entity.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer and seller order response assembly, with and without JSON writing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class OrderResponseBenchmark {
+
+    @Param({"10", "200"})
+    public int orders;
+
+    @Param({"3"})
+    public int itemsPerOrder;
+
+    private ObjectMapper mapper;
+    private List<Order> orderList;
+    private List<OrderLineView> lines;
+
+    @Setup
+    public void setup() {
+        mapper = BenchmarkFixtures.objectMapper();
+        User seller = BenchmarkFixtures.user(1L, "seller", true);
+        User customer = BenchmarkFixtures.user(2L, "customer", false);
+        List<Product> products = BenchmarkFixtures.products(50, seller.getSeller());
+        orderList = BenchmarkFixtures.orders(orders, itemsPerOrder, customer.getCustomer(), products);
+        lines = new ArrayList<>();
+        for (Order o : orderList) {
+            for (OrderItem i : o.getOrderItems()) {
+                lines.add(new OrderLineView(o.getId(), i.getId(), i.getProduct().getId(), i.getProduct().getName(),
+                        i.getProduct().getImageUrl(), i.getQuantity(), i.getPrice(), i.getSubtotal()));
+            }
+        }
+    }
+
+    // The projection rows are fresh per request, so build them inside the measured method
+    private List<OrderView> orderViews(String customerName) {
+        List<OrderView> views = new ArrayList<>(orderList.size());
+        for (Order o : orderList) {
+            views.add(new OrderView(o.getId(), o.getOrderDate(), o.getTotalAmount(), o.getStatus(),
+                    o.getBillingStatus(), o.getShippingAddress(), o.getPaymentMethod(), customerName));
+        }
+        return views;
+    }
+
+    @Benchmark
+    public List<OrderView> customerOrderHistory() {
+        return OrderView.withLines(orderViews(null), lines);
+    }
+
+    @Benchmark
+    public List<OrderView> sellerOrders() {
+        return OrderView.withLines(orderViews("customer"), lines);
+    }
+
+    @Benchmark
+    public byte[] customerOrderHistoryJson() throws Exception {
+        return mapper.writeValueAsBytes(OrderView.withLines(orderViews(null), lines));
+    }
+}
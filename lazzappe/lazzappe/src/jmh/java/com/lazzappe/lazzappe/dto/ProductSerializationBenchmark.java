@@ -0,0 +1,70 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.BenchmarkFixtures;
+import com.lazzappe.lazzappe.entity.Product;
+import com.lazzappe.lazzappe.entity.Seller;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product list serialization: the per-row HashMap the controller used to build
+ * against the ProductView record now returned by the product endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class ProductSerializationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private List<Product> products;
+
+    @Setup
+    public void setup() {
+        mapper = BenchmarkFixtures.objectMapper();
+        Seller seller = BenchmarkFixtures.user(7L, "seller", true).getSeller();
+        products = BenchmarkFixtures.products(size, seller);
+    }
+
+    // Baseline: the former ProductController.productToMap
+    private static Map<String, Object> productToMap(Product p) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("product_id", p.getId());
+        map.put("name", p.getName());
+        map.put("description", p.getDescription());
+        map.put("price", p.getPrice());
+        map.put("stock", p.getStock());
+        map.put("image_url", p.getImageUrl());
+        map.put("category", p.getCategory());
+        if (p.getSeller() != null) {
+            map.put("seller_id", p.getSeller().getId());
+            if (p.getSeller().getUser() != null) map.put("seller_user_id", p.getSeller().getUser().getUser_id());
+        }
+        map.put("created_at", p.getCreatedAt());
+        return map;
+    }
+
+    @Benchmark
+    public byte[] mapSerialization() throws Exception {
+        List<Map<String, Object>> out = new ArrayList<>(products.size());
+        for (Product p : products) out.add(productToMap(p));
+        return mapper.writeValueAsBytes(out);
+    }
+
+    @Benchmark
+    public byte[] recordSerialization() throws Exception {
+        List<ProductView> out = new ArrayList<>(products.size());
+        for (Product p : products) out.add(ProductView.of(p));
+        return mapper.writeValueAsBytes(out);
+    }
+}
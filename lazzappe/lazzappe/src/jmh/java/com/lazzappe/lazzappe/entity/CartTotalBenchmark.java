@@ -0,0 +1,55 @@
+package com.lazzappe.lazzappe.entity;
+
+import com.lazzappe.lazzappe.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout math: per-line subtotal recalculation and the cart total aggregation
+ * CartController performs before placing an order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class CartTotalBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int lines;
+
+    private List<CartItem> items;
+
+    @Setup
+    public void setup() {
+        Seller seller = BenchmarkFixtures.user(1L, "seller", true).getSeller();
+        Cart cart = new Cart();
+        items = new ArrayList<>(lines);
+        for (Product p : BenchmarkFixtures.products(lines, seller)) {
+            items.add(new CartItem(cart, p, 3));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal calculateSubtotals() {
+        BigDecimal last = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            item.calculateSubtotal();
+            last = item.getSubtotal();
+        }
+        return last;
+    }
+
+    @Benchmark
+    public BigDecimal cartTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            total = total.add(item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,54 @@
+package com.lazzappe.lazzappe.security;
+
+import com.lazzappe.lazzappe.BenchmarkFixtures;
+import com.lazzappe.lazzappe.entity.User;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing a token at login and of authenticating a request: a full
+ * signature check versus a hit in the verified-token cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache tokenCache;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        tokenCache = new VerifiedTokenCache();
+        user = BenchmarkFixtures.user(42L, "bench_user", true);
+        token = jwtUtil.generateToken(user);
+        tokenCache.put(token, new JwtPrincipal(42L, "bench_user", "SELLER"), System.currentTimeMillis() + 3_600_000L, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, "bench_user");
+    }
+
+    @Benchmark
+    public Claims parseValidClaims() {
+        return jwtUtil.parseValidClaims(token);
+    }
+
+    @Benchmark
+    public JwtPrincipal cachedLookup() {
+        return tokenCache.get(token);
+    }
+}
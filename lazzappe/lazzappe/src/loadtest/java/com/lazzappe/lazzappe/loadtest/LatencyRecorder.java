@@ -0,0 +1,69 @@
+package com.lazzappe.lazzappe.loadtest;
+
+import java.util.*;
+
+/**
+ * Request latencies per endpoint. Each worker thread fills its own recorder, so
+ * recording never contends; they are merged once the run is over.
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Samples> byEndpoint = new TreeMap<>();
+
+    private static final class Samples {
+        long[] nanos = new long[256];
+        int count;
+        int errors;
+
+        void add(long value) {
+            if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+            nanos[count++] = value;
+        }
+    }
+
+    /** Summary for one endpoint; latencies in milliseconds. */
+    record Stats(String endpoint, int requests, int errors, double throughputPerSec,
+                 double meanMs, double p50Ms, double p90Ms, double p99Ms, double maxMs) {}
+
+    void record(String endpoint, long nanos, boolean ok) {
+        Samples samples = byEndpoint.computeIfAbsent(endpoint, k -> new Samples());
+        samples.add(nanos);
+        if (!ok) samples.errors++;
+    }
+
+    void merge(LatencyRecorder other) {
+        for (Map.Entry<String, Samples> e : other.byEndpoint.entrySet()) {
+            Samples into = byEndpoint.computeIfAbsent(e.getKey(), k -> new Samples());
+            Samples from = e.getValue();
+            for (int i = 0; i < from.count; i++) into.add(from.nanos[i]);
+            into.errors += from.errors;
+        }
+    }
+
+    List<Stats> summarize(long wallNanos) {
+        double seconds = wallNanos / 1e9;
+        List<Stats> out = new ArrayList<>();
+        for (Map.Entry<String, Samples> e : byEndpoint.entrySet()) {
+            Samples s = e.getValue();
+            long[] sorted = Arrays.copyOf(s.nanos, s.count);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long v : sorted) total += v;
+            out.add(new Stats(e.getKey(), s.count, s.errors, s.count / seconds,
+                ms(s.count == 0 ? 0 : total / s.count), ms(percentile(sorted, 50)), ms(percentile(sorted, 90)),
+                ms(percentile(sorted, 99)), ms(s.count == 0 ? 0 : sorted[s.count - 1])));
+        }
+        return out;
+    }
+
+    // Nearest-rank percentile
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double ms(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,347 @@
+package com.lazzappe.lazzappe.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lazzappe.lazzappe.LazzappeApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * End-to-end load test: boots the application on a random port against a fresh
+ * embedded database (H2 in MySQL mode, or any JDBC URL given as db-url), seeds
+ * sellers and products through the REST API, then has concurrent shoppers run
+ * register -> login -> browse -> add to cart -> checkout -> seller order view.
+ *
+ * Run:  mvn -Ploadtest verify -DskipTests -Dloadtest.args="users=64 iterations=20"
+ *
+ * Options (name=value): users (concurrent shoppers, 32), iterations (checkouts
+ * per shopper, 20), warmup (unrecorded shoppers run first, 8), sellers (4), products
+ * (200), items (cart lines per checkout, 2), virtual (true to serve requests on
+ * virtual threads; needs Java 21), db-url / db-user / db-password, out (result file),
+ * baseline (an earlier result file to print this run against), max-errors (failed
+ * requests tolerated before the run counts as failed, 0).
+ * Names starting with spring. or lazzappe. are passed on as application properties.
+ *
+ * Prints p50/p90/p99 latency and throughput per endpoint and writes them as JSON to
+ * target/loadtest-result.json, tagged with the thread mode and Java version, so runs
+ * can be compared across commits or between platform and virtual threads:
+ *
+ *   mvn -Ploadtest verify -DskipTests -Dloadtest.args="out=target/platform.json"
+ *   mvn -Ploadtest verify -DskipTests -Dloadtest.args="virtual=true baseline=target/platform.json"
+ */
+public final class LoadTest {
+
+    private static final String[] WORDS = {
+        "wireless", "leather", "cotton", "steel", "classic", "compact", "organic", "smart",
+        "headphones", "wallet", "shirt", "bottle", "lamp", "keyboard", "backpack", "watch"
+    };
+    private static final String[] CATEGORIES = {"Electronics", "Fashion", "Home", "Sports", "Accessories"};
+    private static final String PASSWORD = "loadtest";
+
+    private final Map<String, String> options;
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final List<Long> productIds = new ArrayList<>();
+    private final Map<Long, BigDecimal> prices = new HashMap<>();
+    private final List<Long> sellerUserIds = new ArrayList<>();
+    // First failure seen per endpoint, shown under the report
+    private final Map<String, String> firstErrors = new ConcurrentSkipListMap<>();
+
+    private LoadTest(Map<String, String> options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? "true" : arg.substring(eq + 1);
+            if (name.startsWith("spring.") || name.startsWith("lazzappe.")) {
+                appArgs.add("--" + name + "=" + value);
+            } else {
+                options.put(name, value);
+            }
+        }
+
+        // Command-line arguments outrank application.properties, so a local MySQL config can't leak in
+        List<String> springArgs = new ArrayList<>(List.of(
+            "--server.port=0",
+            "--management.server.port=0",
+            "--spring.datasource.url=" + options.getOrDefault("db-url",
+                "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,CURRENT_ROLE"),
+            "--spring.datasource.username=" + options.getOrDefault("db-user", "sa"),
+            "--spring.datasource.password=" + options.getOrDefault("db-password", ""),
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.show-sql=false",
+            "--spring.threads.virtual.enabled=" + options.getOrDefault("virtual", "false"),
+            "--lazzappe.photos.dir=target/loadtest-photos"));
+        if (!options.containsKey("db-url")) springArgs.add("--spring.datasource.driver-class-name=org.h2.Driver");
+        // Every shopper comes from one address, so rate limits stay off unless asked for
+        if (appArgs.stream().noneMatch(a -> a.startsWith("--lazzappe.admission.enabled="))) {
+            springArgs.add("--lazzappe.admission.enabled=false");
+        }
+        springArgs.addAll(appArgs);
+
+        // DevTools would restart the app in a second classloader and strand this thread
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(LazzappeApplication.class)
+            .run(springArgs.toArray(new String[0]));
+        int exit = 0;
+        try {
+            String port = ctx.getEnvironment().getProperty("local.server.port");
+            new LoadTest(options, "http://localhost:" + port).run(
+                Boolean.parseBoolean(ctx.getEnvironment().getProperty("spring.threads.virtual.enabled"))
+                    && Runtime.version().feature() >= 21 ? "virtual" : "platform");
+        } catch (Exception e) {
+            e.printStackTrace();
+            exit = 1;
+        } finally {
+            ctx.close();
+        }
+        System.exit(exit);
+    }
+
+    private int option(String name, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(name, String.valueOf(defaultValue)));
+    }
+
+    private void run(String threadMode) throws Exception {
+        int users = option("users", 32);
+        int iterations = option("iterations", 20);
+        int warmup = option("warmup", 8);
+
+        long seedStart = System.nanoTime();
+        seed(option("sellers", 4), option("products", 200));
+        System.out.printf("[LOADTEST] Seeded %d sellers and %d products in %d ms%n",
+            sellerUserIds.size(), productIds.size(), (System.nanoTime() - seedStart) / 1_000_000);
+
+        if (warmup > 0) {
+            drive("warmup", warmup, Math.min(iterations, 5));
+            System.out.println("[LOADTEST] Warmup done");
+        }
+
+        long start = System.nanoTime();
+        LatencyRecorder recorder = drive("run", users, iterations);
+        long wall = System.nanoTime() - start;
+
+        List<LatencyRecorder.Stats> stats = recorder.summarize(wall);
+        int checkouts = stats.stream().filter(s -> s.endpoint().equals("checkout"))
+            .mapToInt(s -> s.requests() - s.errors()).sum();
+        print(stats, wall, checkouts, threadMode);
+        firstErrors.forEach((endpoint, error) -> System.out.println("[LOADTEST] First " + endpoint + " error: " + error));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("thread_mode", threadMode);
+        result.put("java_version", Runtime.version().toString());
+        result.put("cpus", Runtime.getRuntime().availableProcessors());
+        result.put("options", Map.of("users", users, "iterations", iterations, "warmup", warmup,
+            "sellers", sellerUserIds.size(), "products", productIds.size(), "items", option("items", 2)));
+        result.put("wall_ms", wall / 1_000_000);
+        result.put("checkouts_per_sec", checkouts / (wall / 1e9));
+        result.put("endpoints", stats);
+        File out = new File(options.getOrDefault("out", "target/loadtest-result.json"));
+        if (out.getParentFile() != null) out.getParentFile().mkdirs();
+        mapper.copy()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(out, result);
+        System.out.println("[LOADTEST] Results written to " + out.getPath());
+
+        String baseline = options.get("baseline");
+        if (baseline != null) compare(mapper.readTree(new File(baseline)), stats, checkouts / (wall / 1e9), threadMode);
+
+        // The defaults have to carry the default load; a failed request means the sizing doesn't
+        int errors = stats.stream().mapToInt(LatencyRecorder.Stats::errors).sum();
+        if (errors > option("max-errors", 0)) {
+            throw new IllegalStateException(errors + " requests failed; see the first errors above");
+        }
+    }
+
+    // ---------------- seeding ----------------
+
+    private void seed(int sellers, int products) throws Exception {
+        LatencyRecorder ignored = new LatencyRecorder();
+        Random random = new Random(42);
+        List<Long> sellerIds = new ArrayList<>();
+        for (int s = 0; s < sellers; s++) {
+            String username = "seller" + s;
+            expectOk(call(ignored, "seed", "POST", "/api/auth/register", null, Map.of(
+                "username", username, "email", username + "@loadtest.local", "password", PASSWORD,
+                "shipping_address", "1 Seller St", "register_as_seller", true, "store_name", "Store " + s)));
+            JsonNode login = expectOk(call(ignored, "seed", "POST", "/api/auth/login", null,
+                Map.of("username", username, "password", PASSWORD)));
+            sellerUserIds.add(login.path("user_id").asLong());
+            sellerIds.add(login.path("seller_id").asLong());
+        }
+        for (int p = 0; p < products; p++) {
+            String name = WORDS[random.nextInt(8)] + " " + WORDS[8 + random.nextInt(8)] + " " + p;
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(9900), 2);
+            Map<String, Object> body = new HashMap<>();
+            body.put("name", name);
+            body.put("description", "Load test product " + p + " " + WORDS[random.nextInt(WORDS.length)]);
+            body.put("price", price);
+            body.put("stock", 10_000_000);
+            body.put("category", CATEGORIES[p % CATEGORIES.length]);
+            body.put("seller_id", sellerIds.get(p % sellerIds.size()));
+            JsonNode product = expectOk(call(ignored, "seed", "POST", "/api/products", null, body));
+            productIds.add(product.path("product_id").asLong());
+            prices.put(product.path("product_id").asLong(), price);
+        }
+    }
+
+    // ---------------- shoppers ----------------
+
+    private LatencyRecorder drive(String phase, int users, int iterations) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(users);
+        try {
+            List<Future<LatencyRecorder>> results = new ArrayList<>();
+            for (int u = 0; u < users; u++) {
+                String username = phase + "_" + u;
+                long seed = phase.hashCode() * 31L + u;
+                results.add(workers.submit(() -> shop(username, iterations, new Random(seed))));
+            }
+            LatencyRecorder merged = new LatencyRecorder();
+            for (Future<LatencyRecorder> f : results) merged.merge(f.get());
+            return merged;
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    // One shopper's session; a failed login ends it, other failures are counted and skipped
+    private LatencyRecorder shop(String username, int iterations, Random random) throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        call(recorder, "register", "POST", "/api/auth/register", null, Map.of(
+            "username", username, "email", username + "@loadtest.local", "password", PASSWORD,
+            "shipping_address", "1 Shopper St"));
+        Response login = call(recorder, "login", "POST", "/api/auth/login", null,
+            Map.of("username", username, "password", PASSWORD));
+        if (!login.ok()) return recorder;
+        String token = login.body().path("token").asText();
+
+        int items = option("items", 2);
+        for (int i = 0; i < iterations; i++) {
+            Long browsed = productIds.get(random.nextInt(productIds.size()));
+            call(recorder, "product_detail", "GET", "/api/products/" + browsed, null, null);
+            call(recorder, "search", "GET", "/api/products/search?limit=20&q=" + WORDS[random.nextInt(WORDS.length)], null, null);
+
+            BigDecimal total = BigDecimal.ZERO;
+            for (int line = 0; line < items; line++) {
+                Long productId = productIds.get(random.nextInt(productIds.size()));
+                int quantity = 1 + random.nextInt(3);
+                if (call(recorder, "cart_add", "POST", "/api/cart/add", token,
+                        Map.of("productId", productId, "quantity", quantity)).ok()) {
+                    total = total.add(prices.get(productId).multiply(BigDecimal.valueOf(quantity)));
+                }
+            }
+            call(recorder, "cart_view", "GET", "/api/cart", token, null);
+            call(recorder, "checkout", "POST", "/api/cart/checkout", token, Map.of(
+                "paymentMethod", "COD", "shippingAddress", "1 Shopper St", "totalAmount", total));
+
+            Long sellerUserId = sellerUserIds.get(random.nextInt(sellerUserIds.size()));
+            call(recorder, "seller_orders", "GET", "/api/orders/seller/" + sellerUserId + "?size=20", null, null);
+        }
+        return recorder;
+    }
+
+    // ---------------- http ----------------
+
+    private record Response(int status, JsonNode body) {
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private Response call(LatencyRecorder recorder, String endpoint, String method, String path, String token,
+                          Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Accept", "application/json");
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        long start = System.nanoTime();
+        int status;
+        byte[] bytes;
+        try {
+            HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            status = response.statusCode();
+            bytes = response.body();
+        } catch (java.io.IOException e) {
+            recorder.record(endpoint, System.nanoTime() - start, false);
+            firstErrors.putIfAbsent(endpoint, e.toString());
+            return new Response(0, mapper.missingNode());
+        }
+        Response response = new Response(status, bytes.length == 0 ? mapper.missingNode() : mapper.readTree(bytes));
+        recorder.record(endpoint, System.nanoTime() - start, response.ok());
+        if (!response.ok()) firstErrors.putIfAbsent(endpoint, status + " " + response.body());
+        return response;
+    }
+
+    private static JsonNode expectOk(Response response) {
+        if (!response.ok()) throw new IllegalStateException("Seeding failed: " + response.status() + " " + response.body());
+        return response.body();
+    }
+
+    // ---------------- report ----------------
+
+    private static void print(List<LatencyRecorder.Stats> stats, long wall, int checkouts, String threadMode) {
+        System.out.println();
+        System.out.printf("Lazzappe load test - %s threads, Java %s, %d ms wall, %.1f checkouts/s%n",
+            threadMode, Runtime.version().feature(), wall / 1_000_000, checkouts / (wall / 1e9));
+        System.out.printf("%-16s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "errors", "req/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (LatencyRecorder.Stats s : stats) {
+            System.out.printf("%-16s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                s.endpoint(), s.requests(), s.errors(), s.throughputPerSec(),
+                s.meanMs(), s.p50Ms(), s.p90Ms(), s.p99Ms(), s.maxMs());
+        }
+        System.out.println();
+    }
+
+    // Side by side with an earlier result file, e.g. platform threads against virtual ones
+    private static void compare(JsonNode baseline, List<LatencyRecorder.Stats> stats, double checkoutsPerSec,
+                                String threadMode) {
+        Map<String, JsonNode> before = new HashMap<>();
+        for (JsonNode endpoint : baseline.path("endpoints")) before.put(endpoint.path("endpoint").asText(), endpoint);
+        System.out.printf("Against baseline - %s threads, Java %s: %.1f -> %.1f checkouts/s (%s threads)%n",
+            baseline.path("thread_mode").asText(), baseline.path("java_version").asText(),
+            baseline.path("checkouts_per_sec").asDouble(), checkoutsPerSec, threadMode);
+        System.out.printf("%-16s %21s %21s %21s %15s%n", "endpoint", "req/s", "p50 ms", "p99 ms", "errors");
+        for (LatencyRecorder.Stats s : stats) {
+            JsonNode b = before.get(s.endpoint());
+            if (b == null) continue;
+            System.out.printf("%-16s %9.1f -> %8.1f %9.2f -> %8.2f %9.2f -> %8.2f %6d -> %5d%n", s.endpoint(),
+                b.path("throughput_per_sec").asDouble(), s.throughputPerSec(),
+                b.path("p50_ms").asDouble(), s.p50Ms(), b.path("p99_ms").asDouble(), s.p99Ms(),
+                b.path("errors").asInt(), s.errors());
+        }
+        System.out.println();
+    }
+}
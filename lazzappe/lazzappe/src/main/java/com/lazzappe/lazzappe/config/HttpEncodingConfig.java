@@ -0,0 +1,39 @@
+package com.lazzappe.lazzappe.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Response encodings beyond plain JSON.
+ *
+ * Formats: a client sending Accept: application/cbor or application/x-jackson-smile gets
+ * the same documents in that binary form, smaller and cheaper to parse than JSON text.
+ * The converters here replace Spring MVC's defaults so they share the application
+ * ObjectMapper's settings; the streamed lists negotiate the same way in JsonStreamWriter.
+ *
+ * Compression: Tomcat gzips text and binary responses of at least
+ * server.compression.min-response-size (2KB) when the client accepts it; smaller ones
+ * cost more to compress than they save. The ETag'd product lists are gzipped once per
+ * version and served from PrecompressedResponses after that. Defaults live in
+ * http.properties.
+ */
+@Configuration
+@PropertySource("classpath:http.properties")
+public class HttpEncodingConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapper.copyWith(new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapper.copyWith(new SmileFactory()));
+    }
+}
@@ -0,0 +1,43 @@
+package com.lazzappe.lazzappe.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Metrics surface: Actuator serves them at /actuator/prometheus (and /actuator/metrics)
+ * on the management port (management.server.port, 8081, bound to 127.0.0.1), never on
+ * the public API port.
+ *
+ * Spring Boot already times every controller route (http.server.requests) and every
+ * repository method (spring.data.repository.invocations), and binds the JVM, Tomcat and
+ * Hikari pool meters. On top of that the app records, all under lazzappe.*:
+ * statements per request (QueryCountFilter), JWT authentication time
+ * (JwtAuthenticationFilter), checkout phases, stock conflicts and retries
+ * (CheckoutMetrics) and the product cache's hit/miss counts (ProductCache).
+ * Defaults live in metrics.properties.
+ */
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounting() {
+        return properties -> properties.putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    // Streamed response bodies run on an async thread; their statements count toward the request
+    @Bean
+    public WebMvcConfigurer streamedQueryCounting(QueryCountFilter queryCountFilter) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(queryCountFilter.asyncCounting());
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.lazzappe.lazzappe.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Logs virtual threads that stay pinned to their carrier (blocking inside a
+ * synchronized block or native frame) for longer than lazzappe.threads.pinned-threshold-ms,
+ * with the innermost frames so the offending lock can be found. Listens to the JDK's
+ * own jdk.VirtualThreadPinned JFR event; only active in virtual-thread mode.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class PinnedThreadMonitor {
+
+    private static final int FRAMES_TO_LOG = 8;
+
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(@Value("${lazzappe.threads.pinned-threshold-ms:20}") long thresholdMs) {
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::report);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) stream.close();
+    }
+
+    private void report(RecordedEvent event) {
+        StringBuilder line = new StringBuilder("[PINNED] Virtual thread pinned for ")
+            .append(event.getDuration().toMillis()).append(" ms");
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            for (int i = 0; i < frames.size() && i < FRAMES_TO_LOG; i++) {
+                RecordedFrame frame = frames.get(i);
+                line.append("\n    at ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(" line ").append(frame.getLineNumber());
+            }
+        }
+        System.err.println(line);
+    }
+}
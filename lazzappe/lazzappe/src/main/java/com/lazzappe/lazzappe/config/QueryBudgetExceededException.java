@@ -0,0 +1,19 @@
+package com.lazzappe.lazzappe.config;
+
+/**
+ * Thrown from the statement inspector when a request in reject mode tries to run more
+ * statements than its budget. The statement is never sent to the database.
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    private final int budget;
+
+    public QueryBudgetExceededException(int budget, String sql) {
+        super("Query budget of " + budget + " statements exceeded at: " + sql);
+        this.budget = budget;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,160 @@
+package com.lazzappe.lazzappe.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Counts the SQL statements each request runs and holds it to a budget.
+ *
+ * Every request is recorded in lazzappe.db.queries (tagged with the route) and the
+ * count is left in the QUERY_COUNT_ATTRIBUTE request attribute for tests. Over
+ * lazzappe.db.query-budget statements (30) the request is logged, or in reject mode
+ * (lazzappe.db.query-budget-mode=reject, log by default, off to disable) the
+ * statement over budget fails instead of running. A request that prepares the same
+ * statement lazzappe.db.repeated-query-threshold times (10) is logged as a likely N+1,
+ * budget or not.
+ *
+ * A StreamingResponseBody is written on an async thread after the handler returned. The
+ * statements it runs are counted there (asyncCounting(), against what is left of the
+ * budget) and the request is recorded once the async dispatch that completes it has run.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_COUNT_ATTRIBUTE = QueryCountFilter.class.getName() + ".count";
+    private static final String TALLY_ATTRIBUTE = QueryCountFilter.class.getName() + ".tally";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${lazzappe.db.query-budget:30}")
+    private int budget;
+
+    @Value("${lazzappe.db.query-budget-mode:log}")
+    private String mode;
+
+    @Value("${lazzappe.db.repeated-query-threshold:10}")
+    private int repeatedThreshold;
+
+    // Statements of one request across its dispatches and the thread writing a streamed body
+    private static final class Tally {
+        private int count;
+        private String mostRepeated;
+        private int repeats;
+        // Statements run before the body started streaming, for its share of the budget
+        private volatile int beforeStreaming;
+
+        synchronized void add(QueryCounter.Result result) {
+            count += result.count();
+            if (result.repeats() > repeats) {
+                mostRepeated = result.mostRepeated();
+                repeats = result.repeats();
+            }
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized QueryCounter.Result result() {
+            return new QueryCounter.Result(count, mostRepeated, repeats);
+        }
+    }
+
+    // The async dispatch that completes a streamed response passes through here too
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Tally tally = (Tally) request.getAttribute(TALLY_ATTRIBUTE);
+        if (tally == null) {
+            tally = new Tally();
+            request.setAttribute(TALLY_ATTRIBUTE, tally);
+        }
+        QueryCounter.start(limit(tally.count()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tally.add(QueryCounter.stop());
+            request.setAttribute(QUERY_COUNT_ATTRIBUTE, tally.count());
+            // Recorded when the async dispatch completes it, with the streamed statements
+            if (!request.isAsyncStarted()) record(request, tally);
+        }
+    }
+
+    /** Counts the statements an async handler, such as a streamed body, runs on its own thread. */
+    public CallableProcessingInterceptor asyncCounting() {
+        return new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                Tally tally = (Tally) request.getAttribute(TALLY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (tally != null) tally.beforeStreaming = Math.max(0, QueryCounter.current());
+            }
+
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                Tally tally = (Tally) request.getAttribute(TALLY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (tally != null) QueryCounter.start(limit(tally.beforeStreaming));
+            }
+
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object result) {
+                Tally tally = (Tally) request.getAttribute(TALLY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (tally != null) {
+                    QueryCounter.Result counted = QueryCounter.stop();
+                    if (counted != null) tally.add(counted);
+                }
+            }
+        };
+    }
+
+    // In reject mode, what is left of the budget after the statements already run
+    private int limit(int spent) {
+        return "reject".equalsIgnoreCase(mode) ? Math.max(0, budget - spent) : Integer.MAX_VALUE;
+    }
+
+    private void record(HttpServletRequest request, Tally tally) {
+        QueryCounter.Result result = tally.result();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("lazzappe.db.queries")
+            .description("SQL statements run per request")
+            .tag("method", request.getMethod())
+            .tag("uri", route)
+            .register(meterRegistry)
+            .record(result.count());
+
+        if (!"off".equalsIgnoreCase(mode)) {
+            if (result.count() > budget) {
+                System.err.println("[QUERY-BUDGET] " + request.getMethod() + " " + request.getRequestURI()
+                    + " ran " + result.count() + " statements, budget " + budget);
+            }
+            if (result.repeats() >= repeatedThreshold) {
+                System.err.println("[N+1] " + request.getMethod() + " " + route + " ran the same statement "
+                    + result.repeats() + " times: " + result.mostRepeated());
+            }
+        }
+    }
+}
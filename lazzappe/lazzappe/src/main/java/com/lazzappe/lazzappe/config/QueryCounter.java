@@ -0,0 +1,111 @@
+package com.lazzappe.lazzappe.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, between start()
+ * and stop(). Registered as Hibernate's statement inspector; leaves the SQL untouched.
+ * Statements run through JdbcTemplate are not seen. Scopes don't follow work to other
+ * threads; QueryCountFilter opens one on the thread writing a streamed response body.
+ *
+ * Counting scopes nest (a test can count around a whole MockMvc call while the
+ * request filter counts the request inside it); an inner scope's statements also
+ * count toward the outer one. A scope may carry a limit, past which the statement
+ * is refused with QueryBudgetExceededException. The scope remembers the refusal
+ * (refused()), so it still counts as a server error when the caller catches it.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private static final class Scope {
+        final Scope parent;
+        final int limit;
+        int count;
+        QueryBudgetExceededException refused;
+        // SQL text -> times prepared in this scope, for spotting N+1 loops
+        final Map<String, Integer> statements = new HashMap<>();
+
+        Scope(Scope parent, int limit) {
+            this.parent = parent;
+            this.limit = limit;
+        }
+    }
+
+    /** What a scope saw: total statements and the one prepared most often. */
+    public record Result(int count, String mostRepeated, int repeats) {}
+
+    public static void start() {
+        start(Integer.MAX_VALUE);
+    }
+
+    /** Start a scope that refuses any statement beyond the limit. */
+    public static void start(int limit) {
+        CURRENT.set(new Scope(CURRENT.get(), limit));
+    }
+
+    /** Statements in the innermost scope so far, or -1 if none is open. */
+    public static int current() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.count : -1;
+    }
+
+    /** The refusal in the innermost scope, or null if its statements stayed within the limit. */
+    public static QueryBudgetExceededException refused() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.refused : null;
+    }
+
+    /** Close the innermost scope; null if none was open. */
+    public static Result stop() {
+        Scope scope = CURRENT.get();
+        if (scope == null) return null;
+        if (scope.parent != null) {
+            CURRENT.set(scope.parent);
+        } else {
+            CURRENT.remove();
+        }
+        String mostRepeated = null;
+        int repeats = 0;
+        for (Map.Entry<String, Integer> e : scope.statements.entrySet()) {
+            if (e.getValue() > repeats) {
+                mostRepeated = e.getKey();
+                repeats = e.getValue();
+            }
+        }
+        return new Result(scope.count, mostRepeated, repeats);
+    }
+
+    /** Statements the work ran on this thread. */
+    public static Result count(Runnable work) {
+        start();
+        try {
+            work.run();
+        } catch (RuntimeException | Error e) {
+            stop();
+            throw e;
+        }
+        return stop();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope == null) return sql;
+        scope.count++;
+        scope.statements.merge(sql, 1, Integer::sum);
+        if (scope.count > scope.limit) {
+            if (scope.refused == null) scope.refused = new QueryBudgetExceededException(scope.limit, sql);
+            throw scope.refused;
+        }
+        // Outer scopes count the statement too; only the innermost scope's limit applies
+        for (Scope outer = scope.parent; outer != null; outer = outer.parent) {
+            outer.count++;
+            outer.statements.merge(sql, 1, Integer::sum);
+        }
+        return sql;
+    }
+}
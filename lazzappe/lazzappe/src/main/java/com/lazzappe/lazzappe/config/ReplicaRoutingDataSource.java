@@ -0,0 +1,277 @@
+package com.lazzappe.lazzappe.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to replica databases and everything else to the primary.
+ *
+ * Switched on by lazzappe.db.replicas, a comma separated list of JDBC URLs, or indexed
+ * (lazzappe.db.replicas[0]=...) for URLs that contain commas. Credentials are the
+ * primary's unless lazzappe.db.replica-username / replica-password are set.
+ * Connections are handed out lazily and routed when the first statement needs one, as
+ * only then is the transaction's read-only flag known: @Transactional(readOnly = true)
+ * work, Spring Data's find methods included, goes to the next healthy replica in turn;
+ * write transactions and statements outside a transaction go to the primary.
+ *
+ * Read-your-writes: a client (signed-in user and client address, bound per request by
+ * ReadYourWritesFilter) that ran a write transaction reads from the primary for the next
+ * lazzappe.db.replica.read-your-writes-ms (5000), so its checkout or cart change shows
+ * up on its next requests even while the replicas lag.
+ *
+ * Shared copies: reads whose result is kept for other clients (the product cache, list
+ * bodies stored and tagged under a version that already counts the latest write) run
+ * inside onPrimary, as a lagging replica would pin an old row there for everyone.
+ * A read-only transaction that already holds its replica connection keeps it.
+ *
+ * Health: a replica that refuses a connection is taken out at once and its reads fall
+ * back to the primary. Every lazzappe.db.replica.health-interval-ms (5000) each replica
+ * is probed and put back once it answers and, if it reports replication status, is at
+ * most lazzappe.db.replica.max-lag-seconds (10) behind.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final ThreadLocal<String[]> CLIENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+    private static final long MAX_CLIENTS = 100_000;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    // Clients that wrote recently; present means read from the primary
+    private final Cache<String, Boolean> recentWriters;
+    private final int maxLagSeconds;
+    private final ScheduledExecutorService healthCheck;
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration readYourWrites,
+                                    int maxLagSeconds, Duration healthInterval) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            DataSource replica = replicas.get(i);
+            String name = replica instanceof HikariDataSource pool && pool.getPoolName() != null
+                ? pool.getPoolName() : "replica-" + (i + 1);
+            this.replicas.add(new Replica(name, replica));
+        }
+        this.recentWriters = Caffeine.newBuilder()
+            .maximumSize(MAX_CLIENTS)
+            .expireAfterWrite(readYourWrites)
+            .build();
+        this.maxLagSeconds = maxLagSeconds;
+        this.healthCheck = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthCheck.scheduleWithFixedDelay(this::probe, healthInterval.toMillis(), healthInterval.toMillis(),
+            TimeUnit.MILLISECONDS);
+        setTargetDataSource(new Router());
+    }
+
+    /** The primary wrapped with replica routing when lazzappe.db.replicas is set, else the primary itself. */
+    public static DataSource wrapIfConfigured(DataSource primary, HikariDataSource primaryPool, Environment environment) {
+        if (!isConfigured(environment)) return primary;
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls(environment)) {
+            HikariConfig config = new HikariConfig();
+            primaryPool.copyStateTo(config);
+            config.setJdbcUrl(url.trim());
+            config.setPoolName((primaryPool.getPoolName() != null ? primaryPool.getPoolName() : "HikariPool")
+                + "-replica-" + (replicas.size() + 1));
+            config.setReadOnly(true);
+            // Start even if a replica is down; the health check brings it in later
+            config.setInitializationFailTimeout(-1);
+            String username = environment.getProperty("lazzappe.db.replica-username");
+            if (username != null) config.setUsername(username);
+            String password = environment.getProperty("lazzappe.db.replica-password");
+            if (password != null) config.setPassword(password);
+            replicas.add(new HikariDataSource(config));
+        }
+        System.out.println("[REPLICA] Routing read-only transactions to " + replicas.size() + " replica(s)");
+        return new ReplicaRoutingDataSource(primary, replicas,
+            Duration.ofMillis(environment.getProperty("lazzappe.db.replica.read-your-writes-ms", Long.class, 5000L)),
+            environment.getProperty("lazzappe.db.replica.max-lag-seconds", Integer.class, 10),
+            Duration.ofMillis(environment.getProperty("lazzappe.db.replica.health-interval-ms", Long.class, 5000L)));
+    }
+
+    public static boolean isConfigured(Environment environment) {
+        return !replicaUrls(environment).isEmpty();
+    }
+
+    private static List<String> replicaUrls(Environment environment) {
+        return Binder.get(environment).bind("lazzappe.db.replicas", Bindable.listOf(String.class))
+            .orElse(List.of()).stream().filter(url -> !url.isBlank()).toList();
+    }
+
+    // ---------------- client binding (per request) ----------------
+
+    /** Bind the current thread's client keys; writes pin all of them, a read is pinned by any. */
+    public static void bindClient(String... keys) {
+        CLIENT.set(keys);
+    }
+
+    public static String[] currentClient() {
+        return CLIENT.get();
+    }
+
+    public static void clearClient() {
+        CLIENT.remove();
+    }
+
+    /** Run work with its read-only transactions on the primary. */
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (PRIMARY_READS.get() != null) return work.get();
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            PRIMARY_READS.remove();
+        }
+    }
+
+    /** Whether the current thread's reads go to the primary; for carrying that over to another thread. */
+    public static boolean isOnPrimary() {
+        return PRIMARY_READS.get() != null;
+    }
+
+    public static void bindPrimaryReads() {
+        PRIMARY_READS.set(Boolean.TRUE);
+    }
+
+    public static void clearPrimaryReads() {
+        PRIMARY_READS.remove();
+    }
+
+    // ---------------- routing ----------------
+
+    // Asked by the lazy connection on its first statement, when the transaction flags are set
+    private class Router extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                return primary.getConnection();
+            }
+            String[] client = CLIENT.get();
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                if (client != null) {
+                    for (String key : client) recentWriters.put(key, Boolean.TRUE);
+                }
+                return primary.getConnection();
+            }
+            if (PRIMARY_READS.get() != null) return primary.getConnection();
+            if (client != null) {
+                for (String key : client) {
+                    if (recentWriters.getIfPresent(key) != null) return primary.getConnection();
+                }
+            }
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+                if (!replica.healthy) continue;
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    markDown(replica, e.getMessage());
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        // So callers can still reach the primary's pool behind the routing
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || primary.isWrapperFor(iface);
+        }
+    }
+
+    // ---------------- health ----------------
+
+    private void probe() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                long lag = lagSeconds(connection);
+                if (lag > maxLagSeconds) {
+                    markDown(replica, lag == Long.MAX_VALUE ? "replication stopped" : lag + " s behind");
+                } else if (!replica.healthy) {
+                    replica.healthy = true;
+                    System.out.println("[REPLICA] " + replica.name + " is back, reading from it again");
+                }
+            } catch (SQLException e) {
+                markDown(replica, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("[REPLICA] Health check of " + replica.name + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Seconds behind the source; 0 when the server doesn't report replication (not MySQL, not a replica)
+    private static long lagSeconds(Connection connection) {
+        try (Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!status.next()) return 0;
+            long lag = status.getLong("Seconds_Behind_Source");
+            return status.wasNull() ? Long.MAX_VALUE : lag;
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+
+    private void markDown(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            System.err.println("[REPLICA] " + replica.name + " taken out (" + reason + "), reads fall back to the primary");
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        healthCheck.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) closeable.close();
+        }
+        if (primary instanceof AutoCloseable closeable) closeable.close();
+    }
+}
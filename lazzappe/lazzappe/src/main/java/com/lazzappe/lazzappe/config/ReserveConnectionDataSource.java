@@ -0,0 +1,71 @@
+package com.lazzappe.lazzappe.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Serves a thread's second, nested connection from a small reserve pool.
+ *
+ * The table id generator allocates a block of ids in its own transaction, on a fresh
+ * connection, while the requesting thread still holds its own connection and other
+ * threads wait on the generator's lock holding theirs. Once every pooled connection
+ * is held that way nobody can proceed until the connection timeout fires. Taking
+ * nested connections from a separate pool guarantees the allocation can always run.
+ */
+public class ReserveConnectionDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final HikariDataSource reserve;
+    // Connections this thread currently holds through this data source
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+    public ReserveConnectionDataSource(HikariDataSource primary, int reserveSize) {
+        super(primary);
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName((primary.getPoolName() != null ? primary.getPoolName() : "HikariPool") + "-reserve");
+        config.setMaximumPoolSize(reserveSize);
+        config.setMinimumIdle(0);
+        this.reserve = new HikariDataSource(config);
+    }
+
+    public HikariDataSource getPrimary() {
+        return (HikariDataSource) obtainTargetDataSource();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int[] count = held.get();
+        Connection connection = count[0] > 0 ? reserve.getConnection() : obtainTargetDataSource().getConnection();
+        count[0]++;
+        return track(connection, count);
+    }
+
+    // Counts the connection as released on its first close, whichever thread closes it
+    private static Connection track(Connection connection, int[] count) {
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("close") && !closed[0]) {
+                    closed[0] = true;
+                    count[0]--;
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    @Override
+    public void close() {
+        reserve.close();
+        getPrimary().close();
+    }
+}
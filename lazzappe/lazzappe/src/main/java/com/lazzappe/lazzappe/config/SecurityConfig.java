@@ -1,9 +1,16 @@
 package com.lazzappe.lazzappe.config;
 
+import com.lazzappe.lazzappe.security.AdmissionControlFilter;
 import com.lazzappe.lazzappe.security.JwtAuthenticationFilter;
+import com.lazzappe.lazzappe.security.ReadYourWritesFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -22,19 +29,54 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthFilter;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${lazzappe.admission.enabled:true}")
+    private boolean admissionEnabled;
+
+    // Concurrent JDBC-heavy requests; 0 means the connection pool size
+    @Value("${lazzappe.admission.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:${lazzappe.db.pool-size:0}}")
+    private int poolSize;
+
+    // Requests per minute (also the burst size); 0 turns a limit off
+    @Value("${lazzappe.admission.login-per-ip:20}")
+    private int loginPerIp;
+
+    @Value("${lazzappe.admission.register-per-ip:5}")
+    private int registerPerIp;
+
+    @Value("${lazzappe.admission.checkout-per-ip:60}")
+    private int checkoutPerIp;
+
+    @Value("${lazzappe.admission.checkout-per-user:10}")
+    private int checkoutPerUser;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(auth -> auth
+                // A streamed body's second dispatch carries no token; its request was checked on the first
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // Public endpoints - allow without authentication
                 .requestMatchers("/api/auth/login", "/api/auth/register").permitAll()
+                // Seller-wide product changes need the seller; ProductController checks it is theirs
+                .requestMatchers(HttpMethod.DELETE, "/api/products/seller/**").authenticated()
+                .requestMatchers("/api/products/seller/*/import", "/api/products/seller/*/export").authenticated()
                 .requestMatchers("/api/products/**").permitAll()
                 // Protected endpoints - require authentication
                 .requestMatchers("/api/auth/profile", "/api/auth/switch-role", 
                                 "/api/auth/change-password", "/api/auth/upload-photo").authenticated()
                 .requestMatchers("/api/cart/**").authenticated()
+                .requestMatchers("/api/analytics/**").authenticated()
                 // All other requests
                 .anyRequest().permitAll()
             )
@@ -45,9 +87,31 @@ public class SecurityConfig {
         // Add JWT filter before UsernamePasswordAuthenticationFilter
         http.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
 
+        // Read-your-writes pinning needs to know the user, so it also runs after the JWT filter
+        if (ReplicaRoutingDataSource.isConfigured(environment)) {
+            http.addFilterAfter(new ReadYourWritesFilter(), JwtAuthenticationFilter.class);
+        }
+
+        // Rate limits and concurrency admission, after the JWT filter so checkout is limited per user
+        if (admissionEnabled) {
+            http.addFilterAfter(admissionControlFilter(), JwtAuthenticationFilter.class);
+        }
+
         return http.build();
     }
 
+    // Not a bean, so the servlet container doesn't register it a second time
+    private AdmissionControlFilter admissionControlFilter() {
+        int concurrent = maxConcurrent > 0 ? maxConcurrent
+            : poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 2 + 1;
+        AdmissionControlFilter filter = new AdmissionControlFilter(concurrent, meterRegistry);
+        // Login and register look users up by name and email and hash passwords
+        filter.route("POST", "/api/auth/login").perIp(loginPerIp).concurrencyLimited();
+        filter.route("POST", "/api/auth/register").perIp(registerPerIp).concurrencyLimited();
+        filter.route("POST", "/api/cart/checkout").perIp(checkoutPerIp).perUser(checkoutPerUser).concurrencyLimited();
+        return filter;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -0,0 +1,110 @@
+package com.lazzappe.lazzappe.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Request and background execution modes.
+ *
+ * Platform mode (the default) serves requests on Tomcat's thread pool (200 threads
+ * unless server.tomcat.threads.max says otherwise). Virtual mode is switched on with
+ * spring.threads.virtual.enabled=true and needs a Java 21+ runtime; on older JVMs the
+ * flag is ignored and the app stays in platform mode. In virtual mode Spring Boot runs
+ * Tomcat requests, @Async methods and @Scheduled jobs on virtual threads, so a request
+ * blocked on JDBC no longer holds an OS thread and the connection pool becomes the only
+ * limit on database concurrency.
+ *
+ * That makes the pool size the real throttle in both modes. Unless the Hikari settings
+ * are given explicitly, the pool gets (2 x cores) + 1 connections (lazzappe.db.pool-size)
+ * and requests wait at most 5 s for one (lazzappe.db.connection-timeout-ms) instead of
+ * Hikari's 30 s, so overload shows up as fast errors rather than a pile of parked
+ * requests. Nested connections, taken while the thread already holds one (id block
+ * allocation), come from a separate reserve of lazzappe.db.reserve-pool-size (2)
+ * connections; see ReserveConnectionDataSource. PinnedThreadMonitor reports virtual
+ * threads that pin their carrier. With lazzappe.db.replicas set, read-only transactions
+ * are routed to replica pools sized like the primary; see ReplicaRoutingDataSource.
+ *
+ * Sizing: a request waits for a connection about as long as the requests ahead of it
+ * hold theirs, so the pool needs roughly (concurrent requests x share of a request spent
+ * on the database) connections to keep that wait well inside the timeout. The load test
+ * profile (32 concurrent shoppers, failing on any error) passes on these defaults on a
+ * single core with checkout p99 around 2 s. Heavier loads or a slower database need
+ * lazzappe.db.pool-size raised, within the database's own connection limit.
+ */
+@Configuration
+@EnableAsync
+public class ThreadingConfig {
+
+    private static final String POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    private static final String CONNECTION_TIMEOUT = "spring.datasource.hikari.connection-timeout";
+
+    @Bean
+    public static BeanPostProcessor hikariSizingPolicy(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    if (!isSet(environment, POOL_SIZE)) {
+                        int defaultSize = Runtime.getRuntime().availableProcessors() * 2 + 1;
+                        dataSource.setMaximumPoolSize(environment.getProperty("lazzappe.db.pool-size", Integer.class, defaultSize));
+                    }
+                    if (!isSet(environment, CONNECTION_TIMEOUT)) {
+                        dataSource.setConnectionTimeout(environment.getProperty("lazzappe.db.connection-timeout-ms", Long.class, 5000L));
+                    }
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    ReserveConnectionDataSource primary = new ReserveConnectionDataSource(dataSource,
+                        environment.getProperty("lazzappe.db.reserve-pool-size", Integer.class, 2));
+                    return ReplicaRoutingDataSource.wrapIfConfigured(primary, dataSource, environment);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Through the Binder, so relaxed forms such as SPRING_DATASOURCE_HIKARI_MAXIMUMPOOLSIZE
+    // or ...hikari.maximumPoolSize count as given too
+    private static boolean isSet(Environment environment, String property) {
+        return Binder.get(environment).bind(property, Bindable.of(String.class)).isBound();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logExecutionMode(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        boolean virtual = Threading.VIRTUAL.isActive(environment);
+        if (!virtual && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            System.out.println("[THREADS] Virtual threads requested but Java " + Runtime.version().feature()
+                + " doesn't have them; running on platform threads");
+        }
+        String pool = event.getApplicationContext().getBeanProvider(DataSource.class).stream().findFirst()
+            .map(ThreadingConfig::reserveOf).map(ds -> String.valueOf(ds.getPrimary().getMaximumPoolSize())).orElse("n/a");
+        System.out.println("[THREADS] Execution mode: " + (virtual ? "virtual" : "platform") + ", connection pool: " + pool);
+    }
+
+    // The primary's pool, also when it sits behind replica routing
+    private static ReserveConnectionDataSource reserveOf(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ReserveConnectionDataSource.class)
+                ? dataSource.unwrap(ReserveConnectionDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.lazzappe.lazzappe.dto.SellerDailySalesView;
+import com.lazzappe.lazzappe.entity.User;
+import com.lazzappe.lazzappe.repository.SellerDailySalesRepository;
+import com.lazzappe.lazzappe.repository.SellerProductDailySalesRepository;
+import com.lazzappe.lazzappe.repository.UserRepository;
+import com.lazzappe.lazzappe.security.JwtPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Seller sales over a date range. Reads only the daily rollup tables, so a request
+ * costs one index range scan over at most a year of days, however many orders the
+ * seller has. Dates are ISO, both ends inclusive, by the day the order was placed;
+ * the default range is the last 30 days. Sellers only see their own figures.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AnalyticsController {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SellerDailySalesRepository sellerDailySalesRepository;
+
+    @Autowired
+    private SellerProductDailySalesRepository sellerProductDailySalesRepository;
+
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+    private static final int MAX_TOP_PRODUCTS = 100;
+
+    // Per-day rows plus totals for the range
+    @GetMapping("/seller/{userId}/daily")
+    public ResponseEntity<?> getDailySales(@PathVariable Long userId,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+            ResponseEntity<?> problem = checkRange(start, end);
+            if (problem != null) return problem;
+            Object seller = resolveSellerId(userId);
+            if (seller instanceof ResponseEntity<?> error) return error;
+
+            List<SellerDailySalesView> days = sellerDailySalesRepository.findRange((Long) seller, start, end);
+
+            Map<String, Object> res = new LinkedHashMap<>();
+            res.put("from", start);
+            res.put("to", end);
+            res.put("days", days);
+            res.put("totals", totals(days));
+            return ResponseEntity.ok(res);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch sales: " + e.getMessage()));
+        }
+    }
+
+    // Totals only
+    @GetMapping("/seller/{userId}/summary")
+    public ResponseEntity<?> getSummary(@PathVariable Long userId,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+            ResponseEntity<?> problem = checkRange(start, end);
+            if (problem != null) return problem;
+            Object seller = resolveSellerId(userId);
+            if (seller instanceof ResponseEntity<?> error) return error;
+
+            Map<String, Object> res = new LinkedHashMap<>();
+            res.put("from", start);
+            res.put("to", end);
+            res.putAll(totals(sellerDailySalesRepository.findRange((Long) seller, start, end)));
+            return ResponseEntity.ok(res);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch sales summary: " + e.getMessage()));
+        }
+    }
+
+    // Best selling products in the range by net revenue
+    @GetMapping("/seller/{userId}/top-products")
+    public ResponseEntity<?> getTopProducts(@PathVariable Long userId,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+            ResponseEntity<?> problem = checkRange(start, end);
+            if (problem != null) return problem;
+            Object seller = resolveSellerId(userId);
+            if (seller instanceof ResponseEntity<?> error) return error;
+
+            return ResponseEntity.ok(sellerProductDailySalesRepository.findTopProducts((Long) seller, start, end,
+                PageRequest.of(0, Math.max(1, Math.min(limit, MAX_TOP_PRODUCTS)))));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch top products: " + e.getMessage()));
+        }
+    }
+
+    // Seller id for the user, or the error response to return
+    private Object resolveSellerId(Long userId) {
+        if (!userId.equals(getAuthenticatedUserId())) {
+            return ResponseEntity.status(403).body(Map.of("error", "You can only view your own sales"));
+        }
+        Optional<User> userOpt = userRepository.findById(userId);
+        if (userOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "User not found"));
+        User user = userOpt.get();
+        if (user.getSeller() == null) return ResponseEntity.status(400).body(Map.of("error", "User is not a seller"));
+        return user.getSeller().getId();
+    }
+
+    private Long getAuthenticatedUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof JwtPrincipal principal) {
+            return principal.getUserId();
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> checkRange(LocalDate start, LocalDate end) {
+        if (start.isAfter(end)) return ResponseEntity.badRequest().body(Map.of("error", "from must not be after to"));
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Range is limited to " + MAX_DAYS + " days"));
+        }
+        return null;
+    }
+
+    private Map<String, Object> totals(List<SellerDailySalesView> days) {
+        int orders = 0, cancelledOrders = 0, deliveredOrders = 0, units = 0, cancelledUnits = 0;
+        BigDecimal revenue = BigDecimal.ZERO, cancelledRevenue = BigDecimal.ZERO, deliveredRevenue = BigDecimal.ZERO;
+        for (SellerDailySalesView d : days) {
+            orders += d.orders();
+            cancelledOrders += d.cancelledOrders();
+            deliveredOrders += d.deliveredOrders();
+            units += d.unitsSold();
+            cancelledUnits += d.cancelledUnits();
+            revenue = revenue.add(d.revenue());
+            cancelledRevenue = cancelledRevenue.add(d.cancelledRevenue());
+            deliveredRevenue = deliveredRevenue.add(d.deliveredRevenue());
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("orders", orders);
+        out.put("cancelled_orders", cancelledOrders);
+        out.put("delivered_orders", deliveredOrders);
+        out.put("units_sold", units);
+        out.put("net_units", units - cancelledUnits);
+        out.put("revenue", revenue);
+        out.put("cancelled_revenue", cancelledRevenue);
+        out.put("delivered_revenue", deliveredRevenue);
+        out.put("net_revenue", revenue.subtract(cancelledRevenue));
+        return out;
+    }
+}
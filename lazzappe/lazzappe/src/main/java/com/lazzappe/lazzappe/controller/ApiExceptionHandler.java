@@ -0,0 +1,59 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.lazzappe.lazzappe.config.QueryBudgetExceededException;
+import com.lazzappe.lazzappe.config.QueryCounter;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Map;
+
+/**
+ * Errors that are the server's fault rather than the request's, so they must not end up
+ * in the controllers' catch-all 400s.
+ *
+ * A statement refused over the query budget is usually caught by one of those catch-alls,
+ * so the refusal is also read back from QueryCounter just before any body is written: the
+ * response then becomes the 500 whatever the handler chose. It is done here rather than
+ * after the filter chain because writing the body flushes, and commits, the response.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler implements ResponseBodyAdvice<Object> {
+
+    // Reject mode (QueryCountFilter): the endpoint needs more statements than it is allowed.
+    // Logged by beforeBodyWrite, which sees this body too
+    @ExceptionHandler(QueryBudgetExceededException.class)
+    public ResponseEntity<?> queryBudgetExceeded(QueryBudgetExceededException e) {
+        return ResponseEntity.status(500).body(budgetExceeded(e));
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        QueryBudgetExceededException refused = QueryCounter.refused();
+        if (refused == null) return body;
+        System.err.println("[QUERY-BUDGET] Rejected: " + refused.getMessage());
+        response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+        // Only a JSON body can be swapped for the error; anything else keeps its body
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(selectedConverterType)
+            ? budgetExceeded(refused) : body;
+    }
+
+    private static Map<String, Object> budgetExceeded(QueryBudgetExceededException e) {
+        return Map.of("error", "Query budget exceeded", "budget", e.getBudget());
+    }
+}
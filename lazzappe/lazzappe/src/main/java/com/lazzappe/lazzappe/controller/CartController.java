@@ -1,23 +1,33 @@
 package com.lazzappe.lazzappe.controller;
 
+import com.lazzappe.lazzappe.dto.CartLineView;
+import com.lazzappe.lazzappe.dto.CartLineView.CartProductView;
+import com.lazzappe.lazzappe.dto.ProductView;
 import com.lazzappe.lazzappe.entity.Cart;
 import com.lazzappe.lazzappe.entity.CartItem;
 import com.lazzappe.lazzappe.entity.Customer;
 import com.lazzappe.lazzappe.entity.Order;
 import com.lazzappe.lazzappe.entity.OrderItem;
 import com.lazzappe.lazzappe.entity.Product;
+import com.lazzappe.lazzappe.entity.Seller;
 import com.lazzappe.lazzappe.entity.User;
 import com.lazzappe.lazzappe.repository.CartItemRepository;
 import com.lazzappe.lazzappe.repository.CartRepository;
 import com.lazzappe.lazzappe.repository.OrderRepository;
-import com.lazzappe.lazzappe.repository.ProductRepository;
 import com.lazzappe.lazzappe.repository.UserRepository;
+import com.lazzappe.lazzappe.security.JwtPrincipal;
+import com.lazzappe.lazzappe.service.CartCache;
+import com.lazzappe.lazzappe.service.CheckoutMetrics;
+import com.lazzappe.lazzappe.service.InsufficientStockException;
+import com.lazzappe.lazzappe.service.InventoryService;
+import com.lazzappe.lazzappe.service.OutboxService;
+import com.lazzappe.lazzappe.service.ProductCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -30,9 +40,6 @@ public class CartController {
     @Autowired
     private UserRepository userRepository;
 
-    @Autowired
-    private ProductRepository productRepository;
-
     @Autowired
     private CartRepository cartRepository;
 
@@ -42,6 +49,21 @@ public class CartController {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CartCache cartCache;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private CheckoutMetrics checkoutMetrics;
+
     /**
      * Helper method to get the authenticated user from Spring Security context
      */
@@ -50,8 +72,11 @@ public class CartController {
         if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getPrincipal())) {
             return null;
         }
-        
-        // Assuming your UserDetails implementation stores username/email
+
+        // Tokens carry the user id, which survives username changes
+        if (auth.getPrincipal() instanceof JwtPrincipal principal && principal.getUserId() != null) {
+            return userRepository.findById(principal.getUserId()).orElse(null);
+        }
         String username = auth.getName();
         Optional<User> userOpt = userRepository.findByUsername(username);
         return userOpt.orElse(null);
@@ -68,13 +93,50 @@ public class CartController {
         return user.getCustomer();
     }
 
+    /**
+     * Customer id of the caller. Remembered per user id so cart calls served from the
+     * cart cache don't load the user graph.
+     */
+    private Long getAuthenticatedCustomerId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof JwtPrincipal principal && principal.getUserId() != null) {
+            return cartCache.customerIdForUser(principal.getUserId(), () -> {
+                Customer customer = getAuthenticatedCustomer();
+                return customer != null ? customer.getId() : null;
+            });
+        }
+        Customer customer = getAuthenticatedCustomer();
+        return customer != null ? customer.getId() : null;
+    }
+
+    private Long getAuthenticatedUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof JwtPrincipal principal && principal.getUserId() != null) {
+            return principal.getUserId();
+        }
+        User user = getAuthenticatedUser();
+        return user != null ? user.getUser_id() : null;
+    }
+
+    private static CartProductView snapshot(ProductView product) {
+        return new CartProductView(product.productId(), product.name(), product.description(),
+            product.price(), product.imageUrl(), product.stock());
+    }
+
+    // 403 if the id is a cart item of someone else, 404 otherwise
+    private ResponseEntity<?> itemNotInCart(Long cartItemId) {
+        if (cartItemId > 0 && cartItemRepository.existsById(cartItemId)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Forbidden - This cart item does not belong to you"));
+        }
+        return ResponseEntity.status(404).body(Map.of("error", "Cart item not found"));
+    }
+
     @PostMapping("/add")
-    @Transactional
     public ResponseEntity<?> addToCart(@RequestBody Map<String, Object> payload) {
         try {
             // Get authenticated user instead of trusting request
-            Customer customer = getAuthenticatedCustomer();
-            if (customer == null) {
+            Long customerId = getAuthenticatedCustomerId();
+            if (customerId == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "Unauthorized - Please login"));
             }
 
@@ -92,79 +154,38 @@ public class CartController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Quantity must be greater than 0"));
             }
 
-            Optional<Product> productOpt = productRepository.findById(productId);
-            if (productOpt.isEmpty()) {
+            ProductView product = productCache.get(productId);
+            if (product == null) {
                 return ResponseEntity.status(404).body(Map.of("error", "Product not found"));
             }
-            Product product = productOpt.get();
 
             // Block adding own product to cart
-            if (product.getSeller() != null && product.getSeller().getUser() != null) {
-                if (Objects.equals(product.getSeller().getUser().getUser_id(), customer.getUser().getUser_id())) {
-                    return ResponseEntity.status(403).body(Map.of("error", "Cannot add your own product to the cart"));
-                }
-            }
-
-            // Check existing quantity in cart
-            int existingInCart = 0;
-            Optional<Cart> existingCartOpt = cartRepository.findByCustomer(customer);
-            if (existingCartOpt.isPresent()) {
-                Cart existingCart = existingCartOpt.get();
-                List<CartItem> existingItems = cartItemRepository.findByCart(existingCart);
-                for (CartItem it : existingItems) {
-                    if (it.getProduct().getId().equals(productId)) {
-                        existingInCart = it.getQuantity();
-                        break;
-                    }
-                }
+            if (product.sellerUserId() != null && Objects.equals(product.sellerUserId(), getAuthenticatedUserId())) {
+                return ResponseEntity.status(403).body(Map.of("error", "Cannot add your own product to the cart"));
             }
 
-            int available = product.getStock() != null ? product.getStock() : 0;
-            if (available < existingInCart + quantity) {
+            // Stock check and merge happen together in the cached cart; rows are written behind
+            int available = product.stock() != null ? product.stock() : 0;
+            CartLineView line = cartCache.add(customerId, snapshot(product), quantity, available);
+            if (line == null) {
                 return ResponseEntity.status(400).body(Map.of(
                     "error", "Insufficient stock", 
                     "available", available, 
-                    "inCart", existingInCart
+                    "inCart", cartCache.quantityOf(customerId, productId)
                 ));
             }
 
-            // Find or create cart
-            Cart cart = existingCartOpt.orElseGet(() -> {
-                Cart c = new Cart(customer);
-                return cartRepository.save(c);
-            });
-
-            // Check existing item
-            List<CartItem> items = cartItemRepository.findByCart(cart);
-            CartItem found = null;
-            for (CartItem it : items) {
-                if (it.getProduct().getId().equals(productId)) {
-                    found = it;
-                    break;
-                }
-            }
-            
-            if (found != null) {
-                found.setQuantity(found.getQuantity() + quantity);
-                found.calculateSubtotal();
-                cartItemRepository.save(found);
-            } else {
-                CartItem it = new CartItem(cart, product, quantity);
-                cartItemRepository.save(it);
-                found = it;
-            }
-
             Map<String, Object> res = new HashMap<>();
             Map<String, Object> itemMap = new HashMap<>();
-            itemMap.put("cart_item_id", found.getId());
+            itemMap.put("cart_item_id", line.cartItemId());
             Map<String, Object> pmap = new HashMap<>();
-            pmap.put("product_id", product.getId());
-            pmap.put("name", product.getName());
-            pmap.put("description", product.getDescription());
-            pmap.put("price", product.getPrice());
-            pmap.put("image_url", product.getImageUrl());
+            pmap.put("product_id", product.productId());
+            pmap.put("name", product.name());
+            pmap.put("description", product.description());
+            pmap.put("price", product.price());
+            pmap.put("image_url", product.imageUrl());
             itemMap.put("product", pmap);
-            itemMap.put("quantity", found.getQuantity());
+            itemMap.put("quantity", line.quantity());
             res.put("item", itemMap);
 
             return ResponseEntity.ok(res);
@@ -178,33 +199,14 @@ public class CartController {
     public ResponseEntity<?> getCart() {
         try {
             // Get authenticated user's cart only
-            Customer customer = getAuthenticatedCustomer();
-            if (customer == null) {
+            Long customerId = getAuthenticatedCustomerId();
+            if (customerId == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "Unauthorized - Please login"));
             }
 
-            Optional<Cart> cartOpt = cartRepository.findByCustomer(customer);
-            if (cartOpt.isEmpty()) {
-                return ResponseEntity.ok(Collections.emptyList());
-            }
-            
-            Cart cart = cartOpt.get();
-            List<Map<String, Object>> out = new ArrayList<>();
-            for (CartItem it : cart.getCartItems()) {
-                Map<String, Object> m = new HashMap<>();
-                m.put("cart_item_id", it.getId());
-                Map<String, Object> p = new HashMap<>();
-                p.put("product_id", it.getProduct().getId());
-                p.put("name", it.getProduct().getName());
-                p.put("description", it.getProduct().getDescription());
-                p.put("price", it.getProduct().getPrice());
-                p.put("image_url", it.getProduct().getImageUrl());
-                p.put("stock", it.getProduct().getStock());
-                m.put("product", p);
-                m.put("quantity", it.getQuantity());
-                out.add(m);
-            }
-            return ResponseEntity.ok(out);
+            // Served from the cart cache; loaded with one projection query on first use
+            List<CartLineView> lines = cartCache.view(customerId);
+            return ResponseEntity.ok(lines);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch cart: " + e.getMessage()));
@@ -212,11 +214,10 @@ public class CartController {
     }
 
     @PutMapping("/item/{cartItemId}")
-    @Transactional
     public ResponseEntity<?> updateCartItem(@PathVariable Long cartItemId, @RequestBody Map<String, Object> payload) {
         try {
-            Customer customer = getAuthenticatedCustomer();
-            if (customer == null) {
+            Long customerId = getAuthenticatedCustomerId();
+            if (customerId == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "Unauthorized - Please login"));
             }
 
@@ -230,20 +231,18 @@ public class CartController {
                 return ResponseEntity.badRequest().body(Map.of("error", "quantity must be greater than 0"));
             }
             
-            Optional<CartItem> itemOpt = cartItemRepository.findById(cartItemId);
-            if (itemOpt.isEmpty()) {
-                return ResponseEntity.status(404).body(Map.of("error", "Cart item not found"));
-            }
-            CartItem item = itemOpt.get();
-            
-            // CRITICAL: Verify this cart item belongs to the authenticated user
-            if (!item.getCart().getCustomer().getId().equals(customer.getId())) {
-                return ResponseEntity.status(403).body(Map.of("error", "Forbidden - This cart item does not belong to you"));
+            // Only lines in the caller's own cart are visible here
+            CartLineView line = cartCache.find(customerId, cartItemId);
+            if (line == null) {
+                return itemNotInCart(cartItemId);
             }
             
             // Validate stock
-            Product product = item.getProduct();
-            int available = product.getStock() != null ? product.getStock() : 0;
+            ProductView product = productCache.get(line.product().productId());
+            if (product == null) {
+                return ResponseEntity.status(404).body(Map.of("error", "Product not found"));
+            }
+            int available = product.stock() != null ? product.stock() : 0;
             if (quantity > available) {
                 return ResponseEntity.status(400).body(Map.of(
                     "error", "Insufficient stock", 
@@ -252,19 +251,20 @@ public class CartController {
                 ));
             }
 
-            item.setQuantity(quantity);
-            item.calculateSubtotal();
-            cartItemRepository.save(item);
+            line = cartCache.setQuantity(customerId, cartItemId, quantity, snapshot(product));
+            if (line == null) {
+                return itemNotInCart(cartItemId);
+            }
             
             Map<String, Object> res = new HashMap<>();
             Map<String, Object> itemMap = new HashMap<>();
-            itemMap.put("cart_item_id", item.getId());
+            itemMap.put("cart_item_id", line.cartItemId());
             Map<String, Object> pmap = new HashMap<>();
-            pmap.put("product_id", item.getProduct().getId());
-            pmap.put("name", item.getProduct().getName());
-            pmap.put("price", item.getProduct().getPrice());
+            pmap.put("product_id", product.productId());
+            pmap.put("name", product.name());
+            pmap.put("price", product.price());
             itemMap.put("product", pmap);
-            itemMap.put("quantity", item.getQuantity());
+            itemMap.put("quantity", line.quantity());
             res.put("item", itemMap);
             
             return ResponseEntity.ok(res);
@@ -275,26 +275,16 @@ public class CartController {
     }
 
     @DeleteMapping("/item/{cartItemId}")
-    @Transactional
     public ResponseEntity<?> deleteCartItem(@PathVariable Long cartItemId) {
         try {
-            Customer customer = getAuthenticatedCustomer();
-            if (customer == null) {
+            Long customerId = getAuthenticatedCustomerId();
+            if (customerId == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "Unauthorized - Please login"));
             }
 
-            Optional<CartItem> itemOpt = cartItemRepository.findById(cartItemId);
-            if (itemOpt.isEmpty()) {
-                return ResponseEntity.status(404).body(Map.of("error", "Cart item not found"));
+            if (!cartCache.remove(customerId, cartItemId)) {
+                return itemNotInCart(cartItemId);
             }
-            CartItem item = itemOpt.get();
-            
-            // CRITICAL: Verify ownership
-            if (!item.getCart().getCustomer().getId().equals(customer.getId())) {
-                return ResponseEntity.status(403).body(Map.of("error", "Forbidden - This cart item does not belong to you"));
-            }
-            
-            cartItemRepository.delete(item);
             return ResponseEntity.ok(Map.of("message", "Cart item deleted successfully"));
         } catch (Exception e) {
             e.printStackTrace();
@@ -303,20 +293,14 @@ public class CartController {
     }
 
     @DeleteMapping("/clear")
-    @Transactional
     public ResponseEntity<?> clearCart() {
         try {
-            Customer customer = getAuthenticatedCustomer();
-            if (customer == null) {
+            Long customerId = getAuthenticatedCustomerId();
+            if (customerId == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "Unauthorized - Please login"));
             }
 
-            Optional<Cart> cartOpt = cartRepository.findByCustomer(customer);
-            if (cartOpt.isPresent()) {
-                Cart cart = cartOpt.get();
-                cartItemRepository.deleteAll(cart.getCartItems());
-                cartRepository.delete(cart);
-            }
+            cartCache.clear(customerId);
             return ResponseEntity.ok(Map.of("message", "Cart cleared successfully"));
         } catch (Exception e) {
             e.printStackTrace();
@@ -325,8 +309,8 @@ public class CartController {
     }
 
     @PostMapping("/checkout")
-    @Transactional
     public ResponseEntity<?> checkout(@RequestBody Map<String, Object> payload) {
+        long start = System.nanoTime();
         try {
             // Get authenticated user instead of trusting request
             Customer customer = getAuthenticatedCustomer();
@@ -346,88 +330,164 @@ public class CartController {
 
             BigDecimal totalAmount = new BigDecimal(totalObj.toString());
 
-            Optional<Cart> cartOpt = cartRepository.findByCustomer(customer);
-            if (cartOpt.isEmpty() || cartOpt.get().getCartItems().isEmpty()) {
-                return ResponseEntity.status(400).body(Map.of("error", "Cart is empty"));
+            // Checkout reads the cart tables, so write out anything still pending in the cart cache
+            long flushStart = System.nanoTime();
+            cartCache.flush(customer.getId());
+            checkoutMetrics.phase("cart_flush", flushStart);
+
+            // Whole checkout is one transaction, retried if the database reports a lock conflict
+            ResponseEntity<?> result = inventoryService.inTransactionWithRetry(
+                () -> placeOrder(customer, paymentMethod, shippingAddress, totalAmount));
+            if (result.getStatusCode().is2xxSuccessful()) {
+                cartCache.evict(customer.getId());
             }
+            checkoutMetrics.completed(result.getStatusCode().is2xxSuccessful() ? "placed" : "rejected", start);
+            return result;
+        } catch (InsufficientStockException e) {
+            checkoutMetrics.completed("stock_conflict", start);
+            // Another checkout took the stock between our check and the conditional update
+            ProductView prod = productCache.get(e.getProductId());
+            Map<String, Object> res = new HashMap<>();
+            res.put("error", "Insufficient stock for product");
+            res.put("product_id", e.getProductId());
+            res.put("product_name", prod != null ? prod.name() : null);
+            res.put("available", prod != null && prod.stock() != null ? prod.stock() : 0);
+            res.put("requested", e.getRequested());
+            return ResponseEntity.status(400).body(res);
+        } catch (Exception e) {
+            e.printStackTrace();
+            checkoutMetrics.completed("error", start);
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to place order: " + e.getMessage()));
+        }
+    }
 
-            Cart cart = cartOpt.get();
+    /**
+     * One checkout attempt. Runs inside the transaction opened by InventoryService, so
+     * an InsufficientStockException rolls back the order and every stock line taken.
+     */
+    private ResponseEntity<?> placeOrder(Customer customer, String paymentMethod, String shippingAddress, BigDecimal totalAmount) {
+        long phaseStart = System.nanoTime();
+        Optional<Cart> cartOpt = cartRepository.findByCustomer(customer);
+        if (cartOpt.isEmpty() || cartOpt.get().getCartItems().isEmpty()) {
+            return ResponseEntity.status(400).body(Map.of("error", "Cart is empty"));
+        }
 
-            // Calculate actual total from cart to prevent manipulation
-            BigDecimal calculatedTotal = BigDecimal.ZERO;
-            for (CartItem cartItem : cart.getCartItems()) {
-                BigDecimal itemTotal = cartItem.getProduct().getPrice()
-                    .multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-                calculatedTotal = calculatedTotal.add(itemTotal);
-            }
+        Cart cart = cartOpt.get();
 
-            // Verify the total matches (with small tolerance for rounding)
-            if (calculatedTotal.subtract(totalAmount).abs().compareTo(new BigDecimal("0.01")) > 0) {
+        // Calculate actual total from cart to prevent manipulation
+        BigDecimal calculatedTotal = BigDecimal.ZERO;
+        for (CartItem cartItem : cart.getCartItems()) {
+            BigDecimal itemTotal = cartItem.getProduct().getPrice()
+                .multiply(BigDecimal.valueOf(cartItem.getQuantity()));
+            calculatedTotal = calculatedTotal.add(itemTotal);
+        }
+
+        // Verify the total matches (with small tolerance for rounding)
+        if (calculatedTotal.subtract(totalAmount).abs().compareTo(new BigDecimal("0.01")) > 0) {
+            return ResponseEntity.status(400).body(Map.of(
+                "error", "Total amount mismatch",
+                "calculated", calculatedTotal,
+                "provided", totalAmount
+            ));
+        }
+
+        // Fast-fail stock check on the loaded rows; the authoritative check is the reservation below
+        Map<Long, Integer> quantities = new HashMap<>();
+        Set<Long> sellerKeys = new HashSet<>();
+        for (CartItem cartItem : cart.getCartItems()) {
+            Product prod = cartItem.getProduct();
+            Integer stock = prod.getStock() != null ? prod.getStock() : 0;
+            if (cartItem.getQuantity() > stock) {
+                checkoutMetrics.stockConflict("precheck");
                 return ResponseEntity.status(400).body(Map.of(
-                    "error", "Total amount mismatch",
-                    "calculated", calculatedTotal,
-                    "provided", totalAmount
+                    "error", "Insufficient stock for product",
+                    "product_id", prod.getId(),
+                    "product_name", prod.getName(),
+                    "available", stock,
+                    "requested", cartItem.getQuantity()
                 ));
             }
+            quantities.merge(prod.getId(), cartItem.getQuantity(), Integer::sum);
+            // Seller and its user come loaded with the product
+            Seller seller = prod.getSeller();
+            sellerKeys.add(seller.getId());
+            if (seller.getUser() != null) sellerKeys.add(seller.getUser().getUser_id());
+        }
 
-            // Verify stock for each cart item
-            for (CartItem cartItem : cart.getCartItems()) {
-                Product prod = cartItem.getProduct();
-                Integer stock = prod.getStock() != null ? prod.getStock() : 0;
-                if (cartItem.getQuantity() > stock) {
-                    return ResponseEntity.status(400).body(Map.of(
-                        "error", "Insufficient stock for product",
-                        "product_id", prod.getId(),
-                        "product_name", prod.getName(),
-                        "available", stock,
-                        "requested", cartItem.getQuantity()
-                    ));
-                }
-            }
+        phaseStart = checkoutMetrics.phase("load_cart", phaseStart);
 
-            // Create order
-            Order order = new Order(customer, calculatedTotal, shippingAddress, paymentMethod);
-            if ("ONLINE".equals(paymentMethod) || "LAZZAPPEEPAY".equals(paymentMethod)) {
-                order.setBillingStatus("PAID");
-            }
-            orderRepository.save(order);
-
-            // Transfer cart items to order items and decrement stock
-            for (CartItem cartItem : cart.getCartItems()) {
-                Product prod = cartItem.getProduct();
-
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrder(order);
-                orderItem.setProduct(prod);
-                orderItem.setQuantity(cartItem.getQuantity());
-                orderItem.setPrice(prod.getPrice());
-                orderItem.calculateSubtotal();
-                order.getOrderItems().add(orderItem);
-
-                // Decrement stock
-                int remaining = (prod.getStock() != null ? prod.getStock() : 0) - cartItem.getQuantity();
-                prod.setStock(Math.max(0, remaining));
-                productRepository.save(prod);
-            }
+        // Take the stock atomically before writing the order
+        inventoryService.reserve(quantities, sellerKeys);
+        phaseStart = checkoutMetrics.phase("stock_reserve", phaseStart);
 
-            orderRepository.save(order);
+        // Create order
+        Order order = new Order(customer, calculatedTotal, shippingAddress, paymentMethod);
+        if ("ONLINE".equals(paymentMethod) || "LAZZAPPEEPAY".equals(paymentMethod)) {
+            order.setBillingStatus("PAID");
+        }
 
-            // Clear the cart
-            cartItemRepository.deleteAll(cart.getCartItems());
-            cartRepository.delete(cart);
+        // Transfer cart items to order items
+        for (CartItem cartItem : cart.getCartItems()) {
+            Product prod = cartItem.getProduct();
+
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setProduct(prod);
+            orderItem.setSeller(prod.getSeller());
+            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setPrice(prod.getPrice());
+            orderItem.calculateSubtotal();
+            order.getOrderItems().add(orderItem);
+        }
 
-            Map<String, Object> res = new HashMap<>();
-            res.put("message", "Order placed successfully");
-            res.put("order_id", order.getId());
-            res.put("total_amount", order.getTotalAmount());
-            res.put("payment_method", order.getPaymentMethod());
-            res.put("status", order.getStatus());
-            res.put("billing_status", order.getBillingStatus());
+        // Order and its items go out as one JDBC batch per table; flushed here so the
+        // inserts are timed as their own phase rather than inside the cart delete
+        orderRepository.save(order);
+        orderRepository.flush();
+        phaseStart = checkoutMetrics.phase("order_insert", phaseStart);
+
+        // Downstream work picks the order up from the outbox once this transaction commits
+        outboxService.publish(OutboxService.ORDER, order.getId(), OutboxService.ORDER_PLACED, orderPlacedPayload(order));
+        phaseStart = checkoutMetrics.phase("outbox", phaseStart);
+
+        // Clear the cart with two set-based deletes instead of one per item. If a cart flush
+        // committed after the cart was read, the order is stale: roll back and retry
+        cartItemRepository.deleteByCartId(cart.getId());
+        if (cartRepository.deleteCartByIdAndVersion(cart.getId(), cart.getVersion()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Cart.class, cart.getId());
+        }
+        checkoutMetrics.phase("cart_delete", phaseStart);
 
-            return ResponseEntity.ok(res);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.badRequest().body(Map.of("error", "Failed to place order: " + e.getMessage()));
+        Map<String, Object> res = new HashMap<>();
+        res.put("message", "Order placed successfully");
+        res.put("order_id", order.getId());
+        res.put("total_amount", order.getTotalAmount());
+        res.put("payment_method", order.getPaymentMethod());
+        res.put("status", order.getStatus());
+        res.put("billing_status", order.getBillingStatus());
+
+        return ResponseEntity.ok(res);
+    }
+
+    private static Map<String, Object> orderPlacedPayload(Order order) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (OrderItem item : order.getOrderItems()) {
+            Map<String, Object> line = new HashMap<>();
+            line.put("product_id", item.getProduct().getId());
+            line.put("seller_id", item.getSeller() != null ? item.getSeller().getId() : null);
+            line.put("quantity", item.getQuantity());
+            line.put("price", item.getPrice());
+            line.put("subtotal", item.getSubtotal());
+            items.add(line);
         }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("order_id", order.getId());
+        payload.put("customer_id", order.getCustomer().getId());
+        payload.put("order_date", order.getOrderDate().toString());
+        payload.put("total_amount", order.getTotalAmount());
+        payload.put("payment_method", order.getPaymentMethod());
+        payload.put("billing_status", order.getBillingStatus());
+        payload.put("items", items);
+        return payload;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.lazzappe.lazzappe.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * If-None-Match handling for GET endpoints tagged from ResourceVersions. Call notModified
+ * first thing in the handler, before any repository access, and tag the full response
+ * with the same ETag taken there.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {}
+
+    /**
+     * A 304 carrying the validators when the client's copy is current, else null. vary
+     * names the request headers the full response varies by, which the 304 repeats.
+     */
+    static <T> ResponseEntity<T> notModified(WebRequest request, String etag, CacheControl cacheControl, String... vary) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || !matches(ifNoneMatch, etag)) return null;
+        ResponseEntity.BodyBuilder notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl);
+        if (vary.length > 0) notModified.varyBy(vary);
+        return notModified.build();
+    }
+
+    /** The response with the ETag and Cache-Control added. */
+    static <T> ResponseEntity<T> tagged(ResponseEntity<T> response, String etag, CacheControl cacheControl) {
+        return ResponseEntity.status(response.getStatusCode())
+            .headers(response.getHeaders())
+            .eTag(etag)
+            .cacheControl(cacheControl)
+            .body(response.getBody());
+    }
+
+    // Weak comparison (RFC 9110 13.1.2): a W/ prefix on either tag doesn't matter
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (etag.startsWith("W/")) etag = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) return true;
+            if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+            if (candidate.equals(etag)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,179 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.lazzappe.lazzappe.config.ReplicaRoutingDataSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a repository Stream as a JSON array, one element at a time, so the list is
+ * never materialized and peak heap stays flat however many rows there are. Clients that
+ * ask for application/cbor or application/x-jackson-smile get the array in that binary
+ * form instead. Exports use the line formats: one JSON document per line (NDJSON) or
+ * one text row per line.
+ *
+ * The body runs after the controller returns, on the async request thread, so the
+ * stream is opened inside its own read-only transaction there. Handler methods must
+ * declare ResponseEntity&lt;StreamingResponseBody&gt; for Spring MVC to pick the body up.
+ */
+@Component
+public class JsonStreamWriter {
+
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    // In order of preference when the client takes several equally
+    private final Map<MediaType, ObjectWriter> arrayWriters = new LinkedHashMap<>();
+    private final ObjectWriter lineWriter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public JsonStreamWriter(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        arrayWriters.put(MediaType.APPLICATION_JSON, arrayWriter(objectMapper));
+        arrayWriters.put(MediaType.APPLICATION_CBOR, arrayWriter(objectMapper.copyWith(new CBORFactory())));
+        arrayWriters.put(SMILE, arrayWriter(objectMapper.copyWith(new SmileFactory())));
+        this.lineWriter = objectMapper.writer();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    private static ObjectWriter arrayWriter(ObjectMapper mapper) {
+        return mapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /** The rows as an array in the format the current request accepts (JSON unless it asks for CBOR or Smile). */
+    public <T> ResponseEntity<StreamingResponseBody> jsonArray(Supplier<Stream<T>> query) {
+        MediaType type = arrayType();
+        ObjectWriter arrayWriter = arrayWriters.get(type);
+        StreamingResponseBody body = asClient(out -> readOnlyTransaction.executeWithoutResult(status -> {
+            // Let the generator buffer across elements instead of flushing after each one
+            try (Stream<T> rows = query.get();
+                 SequenceWriter writer = arrayWriter.writeValuesAsArray(out)) {
+                Iterator<T> it = rows.iterator();
+                while (it.hasNext()) {
+                    writer.write(it.next());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        return ResponseEntity.ok().contentType(type).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(body);
+    }
+
+    /** Content type jsonArray picks for the current request. */
+    public MediaType arrayType() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet
+            ? negotiate(servlet.getRequest().getHeader(HttpHeaders.ACCEPT)) : MediaType.APPLICATION_JSON;
+    }
+
+    // The offered type with the highest q; a type the client names outranks one it only
+    // matches by wildcard. Nothing acceptable still gets JSON, as before negotiation.
+    private MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) return MediaType.APPLICATION_JSON;
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType best = MediaType.APPLICATION_JSON;
+        double bestQuality = 0;
+        boolean bestNamed = false;
+        for (MediaType offered : arrayWriters.keySet()) {
+            // The most specific range that covers the offered type sets its quality
+            MediaType range = null;
+            for (MediaType candidate : accepted) {
+                if (!candidate.includes(offered)) continue;
+                if (range == null || candidate.isMoreSpecific(range)) range = candidate;
+            }
+            if (range == null || range.getQualityValue() == 0) continue;
+            boolean named = !range.isWildcardType() && !range.isWildcardSubtype();
+            if (range.getQualityValue() > bestQuality || (range.getQualityValue() == bestQuality && named && !bestNamed)) {
+                best = offered;
+                bestQuality = range.getQualityValue();
+                bestNamed = named;
+            }
+        }
+        return best;
+    }
+
+    /** One JSON document per row, newline separated (NDJSON). */
+    public <T> ResponseEntity<StreamingResponseBody> jsonLines(Supplier<Stream<T>> query) {
+        return lines(query, MediaType.APPLICATION_NDJSON, null, row -> {
+            try {
+                return lineWriter.writeValueAsString(row);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /** One text line per row, after the header line if there is one. */
+    public <T> ResponseEntity<StreamingResponseBody> lines(Supplier<Stream<T>> query, MediaType type, String header,
+                                                           Function<T, String> line) {
+        StreamingResponseBody body = asClient(out -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<T> rows = query.get()) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                if (header != null) writer.write(header + "\n");
+                Iterator<T> it = rows.iterator();
+                while (it.hasNext()) {
+                    writer.write(line.apply(it.next()));
+                    writer.write('\n');
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        return ResponseEntity.ok().contentType(type).body(body);
+    }
+
+    // The body runs on another thread; carry the request's client over for read-your-writes
+    // routing, and its primary reads when it is rendered for a shared copy
+    private static StreamingResponseBody asClient(StreamingResponseBody body) {
+        String[] client = ReplicaRoutingDataSource.currentClient();
+        boolean primary = ReplicaRoutingDataSource.isOnPrimary();
+        if (client == null && !primary) return body;
+        return out -> {
+            if (client != null) ReplicaRoutingDataSource.bindClient(client);
+            if (primary) ReplicaRoutingDataSource.bindPrimaryReads();
+            try {
+                body.writeTo(out);
+            } finally {
+                ReplicaRoutingDataSource.clearClient();
+                ReplicaRoutingDataSource.clearPrimaryReads();
+            }
+        };
+    }
+}
@@ -1,17 +1,24 @@
 package com.lazzappe.lazzappe.controller;
 
+import com.lazzappe.lazzappe.dto.OrderView;
 import com.lazzappe.lazzappe.entity.Order;
-import com.lazzappe.lazzappe.entity.OrderItem;
-import com.lazzappe.lazzappe.entity.Seller;
 import com.lazzappe.lazzappe.entity.User;
+import com.lazzappe.lazzappe.repository.OrderItemRepository;
 import com.lazzappe.lazzappe.repository.OrderRepository;
 import com.lazzappe.lazzappe.repository.SellerRepository;
 import com.lazzappe.lazzappe.repository.UserRepository;
+import com.lazzappe.lazzappe.service.OutboxService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @RestController
@@ -28,53 +35,104 @@ public class OrderController {
     @Autowired
     private SellerRepository sellerRepository;
 
-    // Get customer orders by userId
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // Open-ended history bounds; keeps the range predicate sargable on (customer_id, order_date)
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // Get customer orders by userId, newest first, one page at a time: {items, page, size, has_more}.
+    // Optional from/to (ISO dates, to inclusive). Costs two selects per page regardless of how many
+    // orders or items it holds.
     @GetMapping("/customer/{userId}")
-    public ResponseEntity<?> getCustomerOrders(@PathVariable Long userId) {
+    public ResponseEntity<?> getCustomerOrders(@PathVariable Long userId,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "50") int size) {
         try {
             Optional<User> userOpt = userRepository.findById(userId);
             if (userOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "User not found"));
             User user = userOpt.get();
             if (user.getCustomer() == null) return ResponseEntity.status(400).body(Map.of("error", "User is not a customer"));
 
-            List<Order> orders = orderRepository.findByCustomer(user.getCustomer());
-            return ResponseEntity.ok(buildOrderResponse(orders));
+            LocalDateTime fromTime = from != null ? from.atStartOfDay() : HISTORY_START;
+            LocalDateTime toTime = to != null ? to.plusDays(1).atStartOfDay() : HISTORY_END;
+            Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+
+            Slice<OrderView> history = orderRepository.findHistory(user.getCustomer().getId(), fromTime, toTime, pageable);
+            List<OrderView> orders = Collections.emptyList();
+            if (history.hasContent()) {
+                List<Long> orderIds = new ArrayList<>(history.getNumberOfElements());
+                for (OrderView o : history) orderIds.add(o.orderId());
+                orders = OrderView.withLines(history.getContent(), orderRepository.findLinesForOrders(orderIds));
+            }
+            Map<String, Object> res = new HashMap<>();
+            res.put("items", orders);
+            res.put("page", pageable.getPageNumber());
+            res.put("size", pageable.getPageSize());
+            res.put("has_more", history.hasNext());
+            return ResponseEntity.ok(res);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch orders: " + e.getMessage()));
         }
     }
 
-    // Get seller orders (orders containing items from seller's products)
+    // Get seller orders (orders containing items from seller's products), newest first, one page at a time:
+    // {items, page, size, has_more}. Only the seller's own order_item rows are read, so cost follows the
+    // seller's volume.
     @GetMapping("/seller/{userId}")
-    public ResponseEntity<?> getSellerOrders(@PathVariable Long userId) {
+    public ResponseEntity<?> getSellerOrders(@PathVariable Long userId,
+                                             @RequestParam(required = false) String status,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "50") int size) {
         try {
             Optional<User> userOpt = userRepository.findById(userId);
             if (userOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "User not found"));
             User user = userOpt.get();
             if (user.getSeller() == null) return ResponseEntity.status(400).body(Map.of("error", "User is not a seller"));
 
-            Seller seller = user.getSeller();
-            List<Order> allOrders = orderRepository.findAll();
-            
-            // Filter orders that contain items from this seller's products
-            List<Order> sellerOrders = new ArrayList<>();
-            for (Order order : allOrders) {
-                boolean hasSellerItems = order.getOrderItems().stream()
-                    .anyMatch(item -> item.getProduct().getSeller() != null && 
-                                     item.getProduct().getSeller().getId().equals(seller.getId()));
-                if (hasSellerItems) {
-                    sellerOrders.add(order);
-                }
-            }
+            Long sellerId = user.getSeller().getId();
+            Pageable pageable = PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+            Slice<Long> orderIds = (status == null || status.isBlank())
+                ? orderItemRepository.findOrderIdsBySeller(sellerId, pageable)
+                : orderItemRepository.findOrderIdsBySellerAndStatus(sellerId, status.toUpperCase(), pageable);
 
-            return ResponseEntity.ok(buildSellerOrderResponse(sellerOrders, seller.getId()));
+            List<OrderView> orders = Collections.emptyList();
+            if (orderIds.hasContent()) {
+                orders = OrderView.withLines(orderRepository.findSellerViews(orderIds.getContent()),
+                    orderItemRepository.findSellerLinesForOrders(sellerId, orderIds.getContent()));
+            }
+            Map<String, Object> res = new HashMap<>();
+            res.put("items", orders);
+            res.put("page", pageable.getPageNumber());
+            res.put("size", pageable.getPageSize());
+            res.put("has_more", orderIds.hasNext());
+            return ResponseEntity.ok(res);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch seller orders: " + e.getMessage()));
         }
     }
 
+    // Recorded in the same transaction as the status update
+    private void publishStatusChange(Order order, String previous) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("order_id", order.getId());
+        payload.put("from", previous);
+        payload.put("to", order.getStatus());
+        payload.put("billing_status", order.getBillingStatus());
+        payload.put("changed_at", LocalDateTime.now().toString());
+        outboxService.publish(OutboxService.ORDER, order.getId(), OutboxService.ORDER_STATUS_CHANGED, payload);
+    }
+
     // Update order status
     @PutMapping("/{orderId}/status")
     @Transactional
@@ -87,12 +145,14 @@ public class OrderController {
             if (orderOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "Order not found"));
 
             Order order = orderOpt.get();
+            String previous = order.getStatus();
             order.setStatus(status);
             // If marking as delivered, set billing status to PAID
             if ("DELIVERED".equals(status)) {
                 order.setBillingStatus("PAID");
             }
             orderRepository.save(order);
+            publishStatusChange(order, previous);
 
             Map<String, Object> res = new HashMap<>();
             res.put("message", "Order status updated");
@@ -115,12 +175,13 @@ public class OrderController {
             if (orderOpt.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "Order not found"));
 
             Order order = orderOpt.get();
-            if (!order.getStatus().equals("PENDING")) {
+            if (!order.getStatus().equals(Order.PENDING)) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Only pending orders can be accepted"));
             }
             
             order.setStatus("PROCESSING");
             orderRepository.save(order);
+            publishStatusChange(order, Order.PENDING);
 
             Map<String, Object> res = new HashMap<>();
             res.put("message", "Order accepted and set to processing");
@@ -146,8 +207,10 @@ public class OrderController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Cannot cancel orders that are already shipping or delivered"));
             }
             
+            String previous = order.getStatus();
             order.setStatus("CANCELLED");
             orderRepository.save(order);
+            publishStatusChange(order, previous);
 
             Map<String, Object> res = new HashMap<>();
             res.put("message", "Order cancelled successfully");
@@ -159,84 +222,4 @@ public class OrderController {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to cancel order: " + e.getMessage()));
         }
     }
-
-    // Build order response for customer
-    private List<Map<String, Object>> buildOrderResponse(List<Order> orders) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Order order : orders) {
-            Map<String, Object> orderMap = new HashMap<>();
-            orderMap.put("order_id", order.getId());
-            orderMap.put("order_date", order.getOrderDate());
-            orderMap.put("total_amount", order.getTotalAmount());
-            orderMap.put("status", order.getStatus());
-            orderMap.put("billing_status", order.getBillingStatus());
-            orderMap.put("shipping_address", order.getShippingAddress());
-            orderMap.put("payment_method", order.getPaymentMethod());
-            
-            List<Map<String, Object>> items = new ArrayList<>();
-            for (OrderItem item : order.getOrderItems()) {
-                Map<String, Object> itemMap = new HashMap<>();
-                itemMap.put("order_item_id", item.getId());
-                itemMap.put("product_id", item.getProduct().getId());
-                itemMap.put("product_name", item.getProduct().getName());
-                // include product image URL for frontend thumbnails
-                try {
-                    itemMap.put("image_url", item.getProduct().getImageUrl());
-                } catch (Exception e) {
-                    itemMap.put("image_url", null);
-                }
-                itemMap.put("quantity", item.getQuantity());
-                itemMap.put("price", item.getPrice());
-                itemMap.put("subtotal", item.getSubtotal());
-                items.add(itemMap);
-            }
-            orderMap.put("items", items);
-            result.add(orderMap);
-        }
-        return result;
-    }
-
-    // Build order response for seller (filtered by seller's items)
-    private List<Map<String, Object>> buildSellerOrderResponse(List<Order> orders, Long sellerId) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Order order : orders) {
-            Map<String, Object> orderMap = new HashMap<>();
-            orderMap.put("order_id", order.getId());
-            orderMap.put("order_date", order.getOrderDate());
-            orderMap.put("total_amount", order.getTotalAmount());
-            orderMap.put("status", order.getStatus());
-            orderMap.put("billing_status", order.getBillingStatus());
-            orderMap.put("shipping_address", order.getShippingAddress());
-            orderMap.put("payment_method", order.getPaymentMethod());
-            orderMap.put("customer_name", order.getCustomer().getUser().getUsername());
-
-            // Only include items from this seller's products
-            List<Map<String, Object>> items = new ArrayList<>();
-            for (OrderItem item : order.getOrderItems()) {
-                if (item.getProduct().getSeller() != null && 
-                    item.getProduct().getSeller().getId().equals(sellerId)) {
-                    Map<String, Object> itemMap = new HashMap<>();
-                    itemMap.put("order_item_id", item.getId());
-                    itemMap.put("product_id", item.getProduct().getId());
-                    itemMap.put("product_name", item.getProduct().getName());
-                    // include product image URL for frontend thumbnails
-                    try {
-                        itemMap.put("image_url", item.getProduct().getImageUrl());
-                    } catch (Exception e) {
-                        itemMap.put("image_url", null);
-                    }
-                    itemMap.put("quantity", item.getQuantity());
-                    itemMap.put("price", item.getPrice());
-                    itemMap.put("subtotal", item.getSubtotal());
-                    items.add(itemMap);
-                }
-            }
-            
-            if (!items.isEmpty()) {
-                orderMap.put("items", items);
-                result.add(orderMap);
-            }
-        }
-        return result;
-    }
 }
@@ -0,0 +1,72 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.lazzappe.lazzappe.service.PhotoStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RestController
+@RequestMapping("/api/photos")
+@CrossOrigin(origins = "http://localhost:3000")
+public class PhotoController {
+
+    // Tomcat request attributes for handing a file to the connector's sendfile support
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Content never changes for a given reference
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @GetMapping("/{ref}")
+    public void getPhoto(@PathVariable String ref, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(ref, photoStorageService.resolve(ref), request, response);
+    }
+
+    @GetMapping("/{ref}/thumbnail")
+    public void getThumbnail(@PathVariable String ref, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = photoStorageService.isValidRef(ref) ? photoStorageService.resolveThumbnail(ref) : null;
+        serve(ref, file, request, response);
+    }
+
+    private void serve(String ref, Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (file == null) {
+            response.sendError(404);
+            return;
+        }
+
+        // The content hash is the ETag; a matching If-None-Match gets a 304 without touching the file
+        String etag = "\"" + photoStorageService.hashOf(ref) + (file.getFileName().toString().contains(".thumb.") ? "-t" : "") + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+
+        long length = Files.size(file);
+        response.setContentType(photoStorageService.contentTypeOf(ref, file));
+        response.setContentLengthLong(length);
+
+        // Let the connector copy file -> socket in the kernel when it can, otherwise stream it
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+        } else {
+            try (OutputStream out = response.getOutputStream()) {
+                Files.copy(file, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lazzappe.lazzappe.config.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped bodies of the ETag'd product lists, kept per ETag and content type. The first
+ * client that takes gzip gets the list compressed as it streams, and the compressed bytes
+ * are kept; until the ETag moves on, later clients get those bytes without a query or
+ * a second compression. Old versions simply age out of the cache, which holds at most
+ * lazzappe.http.precompressed.max-bytes; a body over max-entry-bytes, or one whose render
+ * marks it Cache-Control: no-store, is sent but not kept.
+ *
+ * Bodies are rendered from the primary (ReplicaRoutingDataSource.onPrimary): they go out,
+ * and are kept, under an ETag that already counts the latest write, which a lagging
+ * replica may not have yet.
+ *
+ * Responses carrying Content-Encoding are left alone by Tomcat's own compression, which
+ * still covers everything else.
+ */
+@Component
+public class PrecompressedResponses {
+
+    private static final String GZIP = "gzip";
+
+    private final Cache<String, byte[]> bodies;
+    private final int maxEntryBytes;
+
+    public PrecompressedResponses(@Value("${lazzappe.http.precompressed.max-bytes:33554432}") long maxBytes,
+                                  @Value("${lazzappe.http.precompressed.max-entry-bytes:4194304}") int maxEntryBytes) {
+        this.bodies = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, byte[] body) -> body.length)
+            .build();
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * The response render would give, gzipped when the client accepts gzip. type must be
+     * the content type render will produce for this request; call after the 304 check.
+     */
+    public ResponseEntity<StreamingResponseBody> gzipped(WebRequest request, String etag, MediaType type,
+                                                         Supplier<ResponseEntity<StreamingResponseBody>> render) {
+        if (!acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            ResponseEntity<StreamingResponseBody> response = ReplicaRoutingDataSource.onPrimary(render);
+            return ResponseEntity.status(response.getStatusCode())
+                .headers(headers -> {
+                    headers.addAll(response.getHeaders());
+                    headers.setVary(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+                })
+                .body(response.getBody());
+        }
+
+        String key = etag + " " + type;
+        byte[] cached = bodies.getIfPresent(key);
+        if (cached != null) {
+            return ResponseEntity.ok()
+                .contentType(type)
+                .contentLength(cached.length)
+                .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .body(out -> out.write(cached));
+        }
+
+        ResponseEntity<StreamingResponseBody> response = ReplicaRoutingDataSource.onPrimary(render);
+        StreamingResponseBody body = response.getBody();
+        if (!response.getStatusCode().is2xxSuccessful() || body == null) return response;
+        String cacheControl = response.getHeaders().getCacheControl();
+        boolean keep = cacheControl == null || !cacheControl.contains("no-store");
+        StreamingResponseBody compressed = out -> {
+            CappedBuffer copy = new CappedBuffer(keep ? maxEntryBytes : 0);
+            GZIPOutputStream gzip = new GZIPOutputStream(new Tee(out, copy), 8192);
+            body.writeTo(gzip);
+            gzip.finish();
+            // Only a body that was written out completely is worth serving again
+            if (keep && !copy.overflowed) bodies.put(key, copy.toByteArray());
+        };
+        return ResponseEntity.status(response.getStatusCode())
+            .headers(headers -> {
+                headers.addAll(response.getHeaders());
+                headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+                headers.setVary(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+            })
+            .body(compressed);
+    }
+
+    // gzip (or *) listed with a non-zero q, and gzip not refused explicitly
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        boolean gzip = false;
+        boolean any = false;
+        boolean gzipRefused = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                if (refused) gzipRefused = true; else gzip = true;
+            } else if (name.equals("*") && !refused) {
+                any = true;
+            }
+        }
+        return gzip || (any && !gzipRefused);
+    }
+
+    private static final class CappedBuffer extends ByteArrayOutputStream {
+        private final int cap;
+        boolean overflowed;
+
+        CappedBuffer(int cap) {
+            super(8192);
+            this.cap = cap;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (overflowed) return;
+            if (count + len > cap) {
+                overflowed = true;
+                buf = new byte[0];
+                count = 0;
+                return;
+            }
+            super.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+    }
+
+    // Writes to the client and the copy alike; the client's stream is never closed here
+    private static final class Tee extends OutputStream {
+        private final OutputStream out;
+        private final OutputStream copy;
+
+        Tee(OutputStream out, OutputStream copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -1,15 +1,41 @@
 package com.lazzappe.lazzappe.controller;
 
+import com.lazzappe.lazzappe.dto.ProductView;
 import com.lazzappe.lazzappe.entity.Product;
 import com.lazzappe.lazzappe.entity.Seller;
 import com.lazzappe.lazzappe.repository.ProductRepository;
+import com.lazzappe.lazzappe.repository.ProductSpecifications;
 import com.lazzappe.lazzappe.repository.SellerRepository;
+import com.lazzappe.lazzappe.security.JwtPrincipal;
+import com.lazzappe.lazzappe.service.ProductArchiveService;
+import com.lazzappe.lazzappe.service.ProductCache;
+import com.lazzappe.lazzappe.service.ProductCsv;
+import com.lazzappe.lazzappe.service.ProductImportService;
+import com.lazzappe.lazzappe.service.ProductSearchIndex;
+import com.lazzappe.lazzappe.service.ResourceVersions;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/products")
@@ -21,51 +47,181 @@ public class ProductController {
     @Autowired
     private SellerRepository sellerRepository;
 
-    
-
-    private Map<String, Object> productToMap(Product p) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("product_id", p.getId());
-        map.put("name", p.getName());
-        map.put("description", p.getDescription());
-        map.put("price", p.getPrice());
-        map.put("stock", p.getStock());
-        map.put("image_url", p.getImageUrl());
-        map.put("category", p.getCategory());
-        if (p.getSeller() != null) {
-            map.put("seller_id", p.getSeller().getId());
-            try {
-                if (p.getSeller().getUser() != null) map.put("seller_user_id", p.getSeller().getUser().getUser_id());
-            } catch (Exception e) {
-                // ignore
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductArchiveService productArchiveService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private PrecompressedResponses precompressedResponses;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Full product list, streamed row by row from a projection query; 304 without a query while unchanged,
+    // and the same gzipped bytes for every client that takes gzip until it changes
+    @GetMapping("")
+    public ResponseEntity<StreamingResponseBody> getAllProducts(WebRequest request) {
+        String etag = resourceVersions.catalogETag();
+        ResponseEntity<StreamingResponseBody> notModified =
+            ConditionalGet.notModified(request, etag, resourceVersions.catalogCacheControl());
+        if (notModified != null) return notModified;
+        return ConditionalGet.tagged(precompressedResponses.gzipped(request, etag, jsonStreamWriter.arrayType(),
+                () -> jsonStreamWriter.jsonArray(() -> productRepository.streamAllViews())),
+            etag, resourceVersions.catalogCacheControl());
+    }
+
+    // Catalog listing with keyset pagination. The cursor carries the sort value and product_id
+    // of the last row served, so every page is an index range scan no matter how deep it is.
+    @GetMapping("/catalog")
+    public ResponseEntity<?> getCatalog(@RequestParam(required = false) String category,
+                                        @RequestParam(name = "seller_id", required = false) Long sellerId,
+                                        @RequestParam(name = "min_price", required = false) BigDecimal minPrice,
+                                        @RequestParam(name = "max_price", required = false) BigDecimal maxPrice,
+                                        @RequestParam(defaultValue = "newest") String sort,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestParam(required = false) String cursor) {
+        try {
+            boolean byPrice = sort.equals("price_asc") || sort.equals("price_desc");
+            boolean descending = sort.equals("newest") || sort.equals("price_desc");
+            if (!byPrice && !sort.equals("newest") && !sort.equals("oldest")) {
+                return ResponseEntity.badRequest().body(Map.of("error", "sort must be one of newest, oldest, price_asc, price_desc"));
+            }
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+            Specification<Product> spec = ProductSpecifications.withSeller().and(ProductSpecifications.live());
+            if (category != null && !category.isBlank()) spec = spec.and(ProductSpecifications.inCategory(category));
+            if (sellerId != null) spec = spec.and(ProductSpecifications.ofSeller(sellerId));
+            if (minPrice != null) spec = spec.and(ProductSpecifications.priceAtLeast(minPrice));
+            if (maxPrice != null) spec = spec.and(ProductSpecifications.priceAtMost(maxPrice));
+
+            if (cursor != null && !cursor.isBlank()) {
+                CatalogCursor after = parseCursor(cursor, byPrice);
+                if (after == null) return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+                spec = spec.and(byPrice
+                    ? ProductSpecifications.priceAfterCursor((BigDecimal) after.value(), after.id(), descending)
+                    : ProductSpecifications.createdAfterCursor((LocalDateTime) after.value(), after.id(), descending));
+            }
+
+            Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+            Sort order = Sort.by(direction, byPrice ? "price" : "createdAt").and(Sort.by(direction, "id"));
+
+            // Fetch one extra row to know whether another page exists
+            List<Product> products = productRepository.findCatalogPage(spec, order, pageSize + 1);
+            boolean hasMore = products.size() > pageSize;
+            if (hasMore) products = products.subList(0, pageSize);
+
+            List<ProductView> items = new ArrayList<>(products.size());
+            for (Product p : products) items.add(ProductView.of(p));
+
+            Map<String, Object> res = new HashMap<>();
+            res.put("items", items);
+            res.put("has_more", hasMore);
+            if (hasMore) {
+                Product last = products.get(products.size() - 1);
+                Object key = byPrice ? last.getPrice().toPlainString() : last.getCreatedAt().toString();
+                res.put("next_cursor", encodeCursor(key + "|" + last.getId()));
+            } else {
+                res.put("next_cursor", null);
             }
+            return ResponseEntity.ok(res);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch catalog: " + e.getMessage()));
         }
-        map.put("created_at", p.getCreatedAt());
-        return map;
     }
 
-    @GetMapping("")
-    public ResponseEntity<?> getAllProducts() {
-        List<Product> products = productRepository.findAll();
-        List<Map<String, Object>> out = new ArrayList<>();
-        for (Product p : products) out.add(productToMap(p));
-        return ResponseEntity.ok(out);
+    // Full-text search over name, category and description, served from the in-memory index
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) String q,
+                                    @RequestParam(required = false) String category,
+                                    @RequestParam(name = "min_price", required = false) BigDecimal minPrice,
+                                    @RequestParam(name = "max_price", required = false) BigDecimal maxPrice,
+                                    @RequestParam(defaultValue = "0") int offset,
+                                    @RequestParam(required = false) Integer limit) {
+        try {
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            String categoryFilter = category != null && !category.isBlank() ? category : null;
+            ProductSearchIndex.SearchResult result = productSearchIndex.search(
+                q, categoryFilter, minPrice, maxPrice, Math.max(0, offset), pageSize);
+
+            Map<String, Object> res = new HashMap<>();
+            res.put("items", result.items());
+            res.put("total", result.total());
+            res.put("facets", Map.of("category", result.categoryCounts()));
+            return ResponseEntity.ok(res);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to search products: " + e.getMessage()));
+        }
     }
 
-    @GetMapping("/seller/{sellerId}")
-    public ResponseEntity<?> getProductsBySeller(@PathVariable Long sellerId) {
-        // Try finding seller by id, else by user's id
-            Optional<Seller> seller = sellerRepository.findById(sellerId);
-        if (seller.isEmpty()) {
-            // try by user id
-                Seller s = sellerRepository.findByUserId(sellerId);
-            if (s == null) return ResponseEntity.ok(Collections.emptyList());
-            seller = Optional.of(s);
+    private String encodeCursor(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record CatalogCursor(Object value, Long id) {}
+
+    // The sort value (price or created_at, matching the sort) and product_id of the last row served,
+    // or null when the cursor is malformed or was issued for the other kind of sort
+    private CatalogCursor parseCursor(String cursor, boolean byPrice) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep <= 0 || sep == raw.length() - 1) return null;
+            String value = raw.substring(0, sep);
+            Long id = Long.parseLong(raw.substring(sep + 1));
+            return new CatalogCursor(byPrice ? new BigDecimal(value) : LocalDateTime.parse(value), id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
         }
-        List<Product> products = productRepository.findBySeller(seller.get());
-        List<Map<String, Object>> out = new ArrayList<>();
-        for (Product p : products) out.add(productToMap(p));
-        return ResponseEntity.ok(out);
+    }
+
+    // Single product, served from the product cache
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getProduct(@PathVariable Long id) {
+        ProductView product = productCache.get(id);
+        if (product == null) return ResponseEntity.status(404).body(Map.of("error", "Product not found"));
+        return ResponseEntity.ok(product);
+    }
+
+    // Hit, miss and eviction counts of the product cache
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(productCache.stats());
+    }
+
+    @GetMapping("/seller/{sellerId}")
+    public ResponseEntity<StreamingResponseBody> getProductsBySeller(@PathVariable Long sellerId, WebRequest request) {
+        // Tagged by the id as given, so the check needs no seller lookup
+        String etag = resourceVersions.sellerETag(sellerId);
+        ResponseEntity<StreamingResponseBody> notModified =
+            ConditionalGet.notModified(request, etag, resourceVersions.catalogCacheControl());
+        if (notModified != null) return notModified;
+        return ConditionalGet.tagged(precompressedResponses.gzipped(request, etag, jsonStreamWriter.arrayType(), () -> {
+            // Try finding seller by id, else by user's id
+            Seller seller = findSeller(sellerId);
+            if (seller == null) {
+                // Any id can be asked for, so an unknown seller's empty list is sent but not kept
+                ResponseEntity<StreamingResponseBody> empty = jsonStreamWriter.jsonArray(Stream::empty);
+                return ResponseEntity.ok().headers(empty.getHeaders()).cacheControl(CacheControl.noStore()).body(empty.getBody());
+            }
+            Long id = seller.getId();
+            return jsonStreamWriter.jsonArray(() -> productRepository.streamViewsBySeller(id));
+        }), etag, resourceVersions.catalogCacheControl());
     }
 
     @PostMapping("")
@@ -101,7 +257,11 @@ public class ProductController {
             p.setCategory(category);
             p.setSeller(seller.get());
             productRepository.save(p);
-            return ResponseEntity.ok(productToMap(p));
+            ProductView view = ProductView.of(p);
+            productCache.put(view);
+            productSearchIndex.index(view);
+            resourceVersions.productsChanged(view.sellerId(), view.sellerUserId());
+            return ResponseEntity.ok(view);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to create product: " + e.getMessage()));
@@ -112,8 +272,11 @@ public class ProductController {
     public ResponseEntity<?> updateProduct(@PathVariable Long id, @RequestBody Map<String, Object> payload) {
         try {
             Optional<Product> optional = productRepository.findById(id);
-            if (optional.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "Product not found"));
+            if (optional.isEmpty() || optional.get().getDeletedAt() != null) {
+                return ResponseEntity.status(404).body(Map.of("error", "Product not found"));
+            }
             Product p = optional.get();
+            ProductView before = ProductView.of(p);
             if (payload.containsKey("name")) p.setName((String) payload.get("name"));
             if (payload.containsKey("description")) p.setDescription((String) payload.get("description"));
             if (payload.containsKey("price")) p.setPrice(new BigDecimal(payload.get("price").toString()));
@@ -131,23 +294,118 @@ public class ProductController {
                 p.setSeller(seller.get());
             }
             productRepository.save(p);
-            return ResponseEntity.ok(productToMap(p));
+            ProductView view = ProductView.of(p);
+            productCache.invalidate(id);
+            productSearchIndex.index(view);
+            resourceVersions.productsChanged(before.sellerId(), before.sellerUserId(), view.sellerId(), view.sellerUserId());
+            return ResponseEntity.ok(view);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to update product: " + e.getMessage()));
         }
     }
 
+    // Archives the product: gone from listings and carts, still shown in the orders that sold it
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         try {
-            Optional<Product> optional = productRepository.findById(id);
-            if (optional.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "Product not found"));
-            productRepository.delete(optional.get());
+            if (!productArchiveService.archive(id)) {
+                return ResponseEntity.status(404).body(Map.of("error", "Product not found"));
+            }
             return ResponseEntity.ok(Map.of("message", "Product deleted"));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to delete product: " + e.getMessage()));
         }
     }
+
+    // Archive all of a seller's products (seller id or the seller's user id)
+    @DeleteMapping("/seller/{sellerId}")
+    public ResponseEntity<?> deleteProductsBySeller(@PathVariable Long sellerId) {
+        try {
+            Seller seller = findSeller(sellerId);
+            if (seller == null) return ResponseEntity.status(404).body(Map.of("error", "Seller not found"));
+            if (!isCallerSeller(seller)) return ResponseEntity.status(403).body(Map.of("error", "Not your store"));
+            int archived = productArchiveService.archiveBySeller(seller.getId());
+            return ResponseEntity.ok(Map.of("message", "Products deleted", "archived", archived));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to delete products: " + e.getMessage()));
+        }
+    }
+
+    // Permanently remove a seller's archived products that no order refers to
+    @DeleteMapping("/seller/{sellerId}/archived")
+    public ResponseEntity<?> purgeArchivedProducts(@PathVariable Long sellerId) {
+        try {
+            Seller seller = findSeller(sellerId);
+            if (seller == null) return ResponseEntity.status(404).body(Map.of("error", "Seller not found"));
+            if (!isCallerSeller(seller)) return ResponseEntity.status(403).body(Map.of("error", "Not your store"));
+            int purged = productArchiveService.purgeArchived(seller.getId());
+            return ResponseEntity.ok(Map.of("message", "Archived products removed", "purged", purged));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to remove products: " + e.getMessage()));
+        }
+    }
+
+    // Bulk import of a seller's products from a CSV (text/csv, header row first) or NDJSON
+    // (application/x-ndjson) request body, read as it arrives; bad rows are reported by line
+    @PostMapping("/seller/{sellerId}/import")
+    public ResponseEntity<?> importProducts(@PathVariable Long sellerId, HttpServletRequest request) {
+        try {
+            Seller seller = findSeller(sellerId);
+            if (seller == null) return ResponseEntity.status(404).body(Map.of("error", "Seller not found"));
+            if (!isCallerSeller(seller)) return ResponseEntity.status(403).body(Map.of("error", "Not your store"));
+            String contentType = request.getContentType() != null ? request.getContentType().toLowerCase(Locale.ROOT) : "";
+            Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+            Reader body = new InputStreamReader(request.getInputStream(), charset);
+
+            ProductImportService.ImportResult result;
+            if (contentType.startsWith("text/csv")) {
+                result = productImportService.importCsv(seller, body);
+            } else if (contentType.startsWith("application/x-ndjson") || contentType.startsWith("application/ndjson")) {
+                result = productImportService.importNdjson(seller, body);
+            } else {
+                return ResponseEntity.status(415).body(Map.of("error", "Upload text/csv or application/x-ndjson"));
+            }
+            // Broken off part way: the rows before the break are in, the result says how far it got
+            return result.complete() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to import products: " + e.getMessage()));
+        }
+    }
+
+    // A seller's products as CSV (the import's format) or NDJSON, streamed row by row
+    @GetMapping("/seller/{sellerId}/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@PathVariable Long sellerId,
+                                                                @RequestParam(defaultValue = "csv") String format) {
+        // Typed for the streamed body, so refusals go without one
+        Seller seller = findSeller(sellerId);
+        if (seller == null) return ResponseEntity.notFound().build();
+        if (!isCallerSeller(seller)) return ResponseEntity.status(403).build();
+        Supplier<Stream<ProductView>> rows = () -> productRepository.streamViewsBySeller(seller.getId());
+        return switch (format) {
+            case "csv" -> jsonStreamWriter.lines(rows, new MediaType("text", "csv", StandardCharsets.UTF_8),
+                ProductCsv.HEADER, ProductCsv::row);
+            case "ndjson" -> jsonStreamWriter.jsonLines(rows);
+            default -> ResponseEntity.badRequest().build();
+        };
+    }
+
+    // Seller by seller id, else by the seller's user id
+    private Seller findSeller(Long id) {
+        return sellerRepository.findById(id).orElseGet(() -> sellerRepository.findByUserId(id));
+    }
+
+    // Whether the signed-in user is the seller's own user
+    private boolean isCallerSeller(Seller seller) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof JwtPrincipal principal && seller.getUser() != null
+            && Objects.equals(seller.getUser().getUser_id(), principal.getUserId());
+    }
 }
@@ -1,23 +1,31 @@
 package com.lazzappe.lazzappe.controller;
 
+import com.lazzappe.lazzappe.config.ReplicaRoutingDataSource;
 import com.lazzappe.lazzappe.entity.Customer;
 import com.lazzappe.lazzappe.entity.Seller;
 import com.lazzappe.lazzappe.entity.User;
 import com.lazzappe.lazzappe.repository.CustomerRepository;
 import com.lazzappe.lazzappe.repository.SellerRepository;
 import com.lazzappe.lazzappe.repository.UserRepository;
+import com.lazzappe.lazzappe.security.JwtPrincipal;
 import com.lazzappe.lazzappe.security.JwtUtil;
+import com.lazzappe.lazzappe.security.VerifiedTokenCache;
+import com.lazzappe.lazzappe.service.PhotoStorageService;
+import com.lazzappe.lazzappe.service.ResourceVersions;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.Optional;
 
-import java.util.Base64;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,6 +46,15 @@ public class UserController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
     /**
      * Helper method to get the authenticated user from Spring Security context
      */
@@ -46,12 +63,23 @@ public class UserController {
         if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getPrincipal())) {
             return null;
         }
-        
+
+        // Tokens carry the user id, which survives username changes
+        if (auth.getPrincipal() instanceof JwtPrincipal principal && principal.getUserId() != null) {
+            return userRepository.findById(principal.getUserId()).orElse(null);
+        }
         String username = auth.getName();
         Optional<User> userOpt = userRepository.findByUsername(username);
         return userOpt.orElse(null);
     }
 
+    // Absolute URL of the user's photo on this server, or null when none is set
+    private String photoUrl(User user) {
+        if (user.getProfilePhotoRef() == null) return null;
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/photos/{ref}").buildAndExpand(user.getProfilePhotoRef()).toUriString();
+    }
+
     // ---------------- REGISTER ----------------
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@RequestBody Map<String, Object> payload) {
@@ -107,6 +135,8 @@ public class UserController {
 
                 sellerRepository.save(seller);
                 user.setSeller(seller);
+                // A new seller id may already be polled as someone else's user id
+                resourceVersions.productsChanged(seller.getId());
             }
 
             userRepository.save(user);
@@ -150,7 +180,7 @@ public class UserController {
                 return ResponseEntity.status(401).body(Map.of("error", "Invalid password"));
             }
 
-            String token = jwtUtil.generateToken(user.getUsername());
+            String token = jwtUtil.generateToken(user);
 
             Map<String, Object> response = new HashMap<>();
             response.put("token", token);
@@ -158,7 +188,7 @@ public class UserController {
             response.put("username", user.getUsername());
             response.put("email", user.getEmail());
             response.put("phone_number", user.getPhone_number());
-            response.put("profilePhoto", user.getProfilePhoto());
+            response.put("profilePhoto", photoUrl(user));
             response.put("isCustomer", user.getCustomer() != null);
             response.put("isSeller", user.getSeller() != null);
             String role = (user.getCurrentRole() != null) ? user.getCurrentRole() : (user.getSeller() != null ? "SELLER" : "CUSTOMER");
@@ -177,9 +207,20 @@ public class UserController {
 
     // ---------------- PROFILE ----------------
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile() {
+    public ResponseEntity<?> getProfile(WebRequest request) {
         try {
-            User user = getAuthenticatedUser();
+            // Tagged from the token's user id, so an unchanged profile is answered without loading the user
+            String etag = null;
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.getPrincipal() instanceof JwtPrincipal principal && principal.getUserId() != null) {
+                etag = resourceVersions.profileETag(principal.getUserId());
+                ResponseEntity<?> notModified = ConditionalGet.notModified(request, etag, resourceVersions.profileCacheControl(),
+                    HttpHeaders.AUTHORIZATION);
+                if (notModified != null) return notModified;
+            }
+
+            // From the primary: the body is tagged with a version that already counts the latest change
+            User user = ReplicaRoutingDataSource.onPrimary(this::getAuthenticatedUser);
             if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "Unauthorized - Please login"));
             }
@@ -189,7 +230,7 @@ public class UserController {
             response.put("username", user.getUsername());
             response.put("email", user.getEmail());
             response.put("phone_number", user.getPhone_number());
-            response.put("profilePhoto", user.getProfilePhoto());
+            response.put("profilePhoto", photoUrl(user));
             response.put("isCustomer", user.getCustomer() != null);
             response.put("isSeller", user.getSeller() != null);
             String role = (user.getCurrentRole() != null) ? user.getCurrentRole() : (user.getSeller() != null ? "SELLER" : "CUSTOMER");
@@ -204,7 +245,9 @@ public class UserController {
                 response.put("store_description", user.getSeller().getStoreDescription());
                 response.put("business_license", user.getSeller().getBusinessLicense());
             }
-            return ResponseEntity.ok(response);
+            if (etag == null) return ResponseEntity.ok(response);
+            return ConditionalGet.tagged(ResponseEntity.ok().header(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION).body(response),
+                etag, resourceVersions.profileCacheControl());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch profile: " + e.getMessage()));
@@ -252,6 +295,7 @@ public class UserController {
             }
 
             userRepository.save(user);
+            resourceVersions.profileChanged(user.getUser_id());
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Profile updated");
@@ -349,6 +393,9 @@ public class UserController {
             user.setCurrentRole(role.toUpperCase());
             userRepository.save(user);
             userRepository.flush();
+            resourceVersions.profileChanged(user.getUser_id());
+            // Seller lists resolve a user id through the user's seller
+            resourceVersions.productsChanged(user.getUser_id(), user.getSeller() != null ? user.getSeller().getId() : null);
             user = userRepository.findById(user.getUser_id()).orElse(user);
             
             Map<String, Object> response = new HashMap<>();
@@ -361,6 +408,9 @@ public class UserController {
             response.put("isSeller", user.getSeller() != null);
             String finalRole = (user.getCurrentRole() != null) ? user.getCurrentRole() : (user.getSeller() != null ? "SELLER" : "CUSTOMER");
             response.put("role", finalRole);
+            // Role is a token claim: retire the tokens carrying the old role and hand out one for the new role
+            tokenCache.revokeUser(user.getUser_id());
+            response.put("token", jwtUtil.generateToken(user));
             
             if (user.getSeller() != null) {
                 response.put("seller_id", user.getSeller().getId());
@@ -396,15 +446,21 @@ public class UserController {
                 return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
             }
 
-            String base64Photo = Base64.getEncoder().encodeToString(file.getBytes());
-            String dataUri = "data:" + file.getContentType() + ";base64," + base64Photo;
-
-            user.setProfilePhoto(dataUri);
+            // Stored on disk by content hash; the user row only keeps the reference.
+            // The format comes from the file's bytes, not the Content-Type the client sent.
+            String ref;
+            try (InputStream in = file.getInputStream()) {
+                ref = photoStorageService.store(in);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            user.setProfilePhotoRef(ref);
             userRepository.save(user);
+            resourceVersions.profileChanged(user.getUser_id());
 
             Map<String, String> response = new HashMap<>();
             response.put("message", "Photo uploaded successfully");
-            response.put("photoUrl", dataUri);
+            response.put("photoUrl", photoUrl(user));
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             e.printStackTrace();
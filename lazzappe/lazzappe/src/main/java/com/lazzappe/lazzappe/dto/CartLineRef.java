@@ -0,0 +1,7 @@
+package com.lazzappe.lazzappe.dto;
+
+/**
+ * A cart line's row id and stored quantity, read back after the cart flush upserts it.
+ */
+public record CartLineRef(Long productId, Long cartItemId, Integer quantity) {
+}
@@ -0,0 +1,29 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * Cart line with its product, selected in one query for GET /api/cart.
+ */
+public record CartLineView(
+        @JsonProperty("cart_item_id") Long cartItemId,
+        CartProductView product,
+        Integer quantity) {
+
+    public record CartProductView(
+            @JsonProperty("product_id") Long productId,
+            String name,
+            String description,
+            BigDecimal price,
+            @JsonProperty("image_url") String imageUrl,
+            Integer stock) {
+    }
+
+    // Used by the JPQL constructor expression
+    public CartLineView(Long cartItemId, Integer quantity, Long productId, String name, String description,
+                        BigDecimal price, String imageUrl, Integer stock) {
+        this(cartItemId, new CartProductView(productId, name, description, price, imageUrl, stock), quantity);
+    }
+}
@@ -0,0 +1,20 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * One order line with the product fields the order pages show.
+ */
+public record OrderLineView(
+        @JsonIgnore Long orderId,
+        @JsonProperty("order_item_id") Long orderItemId,
+        @JsonProperty("product_id") Long productId,
+        @JsonProperty("product_name") String productName,
+        @JsonProperty("image_url") String imageUrl,
+        Integer quantity,
+        BigDecimal price,
+        BigDecimal subtotal) {
+}
@@ -0,0 +1,11 @@
+package com.lazzappe.lazzappe.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The parts of an order line the sales rollups need.
+ */
+public record OrderSalesLine(Long sellerId, Long productId, Integer quantity, BigDecimal subtotal,
+                             LocalDateTime orderDate) {
+}
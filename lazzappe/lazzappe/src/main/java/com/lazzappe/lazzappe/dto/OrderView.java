@@ -0,0 +1,50 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order history row, selected straight from JPQL so no Order entity (and none of its
+ * eager associations) is loaded. Items are attached afterwards from a second query.
+ * customer_name is only filled (and written) for the seller's view.
+ */
+public record OrderView(
+        @JsonProperty("order_id") Long orderId,
+        @JsonProperty("order_date") LocalDateTime orderDate,
+        @JsonProperty("total_amount") BigDecimal totalAmount,
+        String status,
+        @JsonProperty("billing_status") String billingStatus,
+        @JsonProperty("shipping_address") String shippingAddress,
+        @JsonProperty("payment_method") String paymentMethod,
+        @JsonProperty("customer_name") @JsonInclude(JsonInclude.Include.NON_NULL) String customerName,
+        List<OrderLineView> items) {
+
+    // Used by the JPQL constructor expressions
+    public OrderView(Long orderId, LocalDateTime orderDate, BigDecimal totalAmount, String status,
+                     String billingStatus, String shippingAddress, String paymentMethod) {
+        this(orderId, orderDate, totalAmount, status, billingStatus, shippingAddress, paymentMethod, null, new ArrayList<>());
+    }
+
+    public OrderView(Long orderId, LocalDateTime orderDate, BigDecimal totalAmount, String status,
+                     String billingStatus, String shippingAddress, String paymentMethod, String customerName) {
+        this(orderId, orderDate, totalAmount, status, billingStatus, shippingAddress, paymentMethod, customerName, new ArrayList<>());
+    }
+
+    /** Attach each line to its order, for both customer and seller views; returns the orders. */
+    public static List<OrderView> withLines(List<OrderView> orders, List<OrderLineView> lines) {
+        Map<Long, OrderView> byId = new HashMap<>();
+        for (OrderView o : orders) byId.put(o.orderId(), o);
+        for (OrderLineView line : lines) {
+            OrderView order = byId.get(line.orderId());
+            if (order != null) order.items().add(line);
+        }
+        return orders;
+    }
+}
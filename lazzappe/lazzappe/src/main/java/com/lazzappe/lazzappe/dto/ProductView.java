@@ -0,0 +1,36 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.lazzappe.lazzappe.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Product as returned by the product endpoints. List queries select it directly with a
+ * JPQL constructor expression; single-product responses build it from the entity.
+ */
+public record ProductView(
+        @JsonProperty("product_id") Long productId,
+        String name,
+        String description,
+        BigDecimal price,
+        Integer stock,
+        @JsonProperty("image_url") String imageUrl,
+        String category,
+        @JsonProperty("seller_id") @JsonInclude(JsonInclude.Include.NON_NULL) Long sellerId,
+        @JsonProperty("seller_user_id") @JsonInclude(JsonInclude.Include.NON_NULL) Long sellerUserId,
+        @JsonProperty("created_at") LocalDateTime createdAt) {
+
+    public static ProductView of(Product p) {
+        Long sellerId = null;
+        Long sellerUserId = null;
+        if (p.getSeller() != null) {
+            sellerId = p.getSeller().getId();
+            if (p.getSeller().getUser() != null) sellerUserId = p.getSeller().getUser().getUser_id();
+        }
+        return new ProductView(p.getId(), p.getName(), p.getDescription(), p.getPrice(), p.getStock(),
+                p.getImageUrl(), p.getCategory(), sellerId, sellerUserId, p.getCreatedAt());
+    }
+}
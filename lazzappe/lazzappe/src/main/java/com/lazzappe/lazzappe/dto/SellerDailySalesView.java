@@ -0,0 +1,32 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One day of a seller's sales rollup. Net figures leave out cancelled orders.
+ */
+public record SellerDailySalesView(
+        @JsonProperty("sales_date") LocalDate salesDate,
+        @JsonProperty("orders") Integer orders,
+        @JsonProperty("cancelled_orders") Integer cancelledOrders,
+        @JsonProperty("delivered_orders") Integer deliveredOrders,
+        @JsonProperty("units_sold") Integer unitsSold,
+        BigDecimal revenue,
+        @JsonProperty("cancelled_units") Integer cancelledUnits,
+        @JsonProperty("cancelled_revenue") BigDecimal cancelledRevenue,
+        @JsonProperty("delivered_units") Integer deliveredUnits,
+        @JsonProperty("delivered_revenue") BigDecimal deliveredRevenue) {
+
+    @JsonProperty("net_units")
+    public int netUnits() {
+        return unitsSold - cancelledUnits;
+    }
+
+    @JsonProperty("net_revenue")
+    public BigDecimal netRevenue() {
+        return revenue.subtract(cancelledRevenue);
+    }
+}
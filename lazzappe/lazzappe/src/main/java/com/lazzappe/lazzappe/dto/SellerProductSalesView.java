@@ -0,0 +1,17 @@
+package com.lazzappe.lazzappe.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * One product's sales summed over a date range, from the per-product rollup.
+ */
+public record SellerProductSalesView(
+        @JsonProperty("product_id") Long productId,
+        @JsonProperty("product_name") String productName,
+        @JsonProperty("units_sold") Long unitsSold,
+        BigDecimal revenue,
+        @JsonProperty("cancelled_units") Long cancelledUnits,
+        @JsonProperty("net_revenue") BigDecimal netRevenue) {
+}
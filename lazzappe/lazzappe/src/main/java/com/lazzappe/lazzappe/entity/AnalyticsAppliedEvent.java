@@ -0,0 +1,23 @@
+package com.lazzappe.lazzappe.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox events already folded into the sales rollups, so a redelivered event is
+ * not counted twice.
+ */
+@Entity
+@Table(name = "analytics_applied_event")
+public class AnalyticsAppliedEvent {
+
+    @Id
+    @Column(name = "outbox_event_id")
+    private Long outboxEventId;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+
+    public Long getOutboxEventId() { return outboxEventId; }
+    public LocalDateTime getAppliedAt() { return appliedAt; }
+}
@@ -11,7 +11,9 @@ import java.util.List;
 public class Cart {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "cart_id")
+    @TableGenerator(name = "cart_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "cart", allocationSize = 50)
     @Column(name = "cart_id")
     private Long id;
 
@@ -25,6 +27,11 @@ public class Cart {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Bumped by every cart flush, so checkout can tell the cart changed after it was read
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
 
@@ -53,6 +60,8 @@ public class Cart {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 
+    public long getVersion() { return version; }
+
     public List<CartItem> getCartItems() { return cartItems; }
     public void setCartItems(List<CartItem> cartItems) { this.cartItems = cartItems; }
 }
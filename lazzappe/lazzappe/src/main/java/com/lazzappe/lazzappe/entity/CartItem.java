@@ -4,11 +4,15 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "cart_item")
+@Table(name = "cart_item",
+       uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_cart_product",
+                                             columnNames = {"cart_id", "product_id"})) // one line per product
 public class CartItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "cart_item_id")
+    @TableGenerator(name = "cart_item_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "cart_item", allocationSize = 50)
     @Column(name = "cart_item_id")
     private Long id;
 
@@ -26,6 +30,10 @@ public class CartItem {
     @Column(precision = 10, scale = 2)
     private BigDecimal subtotal = BigDecimal.ZERO;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     // Constructors
     public CartItem() {}
 
@@ -64,6 +72,8 @@ public class CartItem {
         this.calculateSubtotal();
     }
 
+    public long getVersion() { return version; }
+
     public BigDecimal getSubtotal() { return subtotal; }
     public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
 }
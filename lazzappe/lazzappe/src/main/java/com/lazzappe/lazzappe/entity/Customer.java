@@ -7,7 +7,9 @@ import jakarta.persistence.*;
 public class Customer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "customer_id")
+    @TableGenerator(name = "customer_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "customer", allocationSize = 50)
     @Column(name = "customer_id")
     private Long id;
 
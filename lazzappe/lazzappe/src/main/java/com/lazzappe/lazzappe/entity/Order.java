@@ -7,11 +7,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+       indexes = @Index(name = "idx_orders_customer_date", columnList = "customer_id, order_date")) // order history
 public class Order {
 
+    public static final String PENDING = "PENDING";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orders_id")
+    @TableGenerator(name = "orders_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = 50)
     @Column(name = "order_id")
     private Long id;
 
@@ -44,7 +49,7 @@ public class Order {
     // Constructors
     public Order() {
         this.orderDate = LocalDateTime.now();
-        this.status = "PENDING";
+        this.status = PENDING;
         this.billingStatus = "TO_PAY";
     }
 
@@ -54,7 +59,7 @@ public class Order {
         this.shippingAddress = shippingAddress;
         this.paymentMethod = paymentMethod;
         this.orderDate = LocalDateTime.now();
-        this.status = "PENDING";
+        this.status = PENDING;
         this.billingStatus = "TO_PAY";
     }
 
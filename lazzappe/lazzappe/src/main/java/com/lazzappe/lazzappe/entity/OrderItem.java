@@ -4,11 +4,14 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_item")
+@Table(name = "order_item",
+       indexes = @Index(name = "idx_order_item_product_order", columnList = "product_id, order_id")) // seller order lookup
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_id")
+    @TableGenerator(name = "order_item_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "order_item", allocationSize = 50)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -20,6 +23,12 @@ public class OrderItem {
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    // Seller at the time of purchase, so sales stay with them if the product changes hands;
+    // null on lines written before it was recorded
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "seller_id")
+    private Seller seller;
+
     @Column(nullable = false)
     private Integer quantity;
 
@@ -61,6 +70,9 @@ public class OrderItem {
         this.product = product; 
     }
 
+    public Seller getSeller() { return seller; }
+    public void setSeller(Seller seller) { this.seller = seller; }
+
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
@@ -0,0 +1,106 @@
+package com.lazzappe.lazzappe.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Side effect recorded in the same transaction as the change that caused it and
+ * delivered later by OutboxDispatcher. PENDING rows are due once next_attempt_at has
+ * passed; claiming a row pushes next_attempt_at out as a lease, so a dispatcher that
+ * dies mid-batch leaves its rows to be picked up again.
+ */
+@Entity
+@Table(name = "outbox_event",
+       indexes = {
+           @Index(name = "idx_outbox_due", columnList = "status, next_attempt_at, outbox_event_id"),
+           @Index(name = "idx_outbox_aggregate", columnList = "aggregate_type, aggregate_id, outbox_event_id")
+       })
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "outbox_event_id")
+    @TableGenerator(name = "outbox_event_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "outbox_event", allocationSize = 50)
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 40)
+    private String aggregateType; // e.g. "order"
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 60)
+    private String eventType; // ORDER_PLACED, ORDER_STATUS_CHANGED
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload; // JSON
+
+    @Column(nullable = false, length = 12)
+    private String status; // PENDING, DONE, FAILED
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    // Constructors
+    public OutboxEvent() {
+        this.status = "PENDING";
+        this.attempts = 0;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public OutboxEvent(String aggregateType, Long aggregateId, String eventType, String payload) {
+        this();
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getAggregateType() { return aggregateType; }
+    public void setAggregateType(String aggregateType) { this.aggregateType = aggregateType; }
+
+    public Long getAggregateId() { return aggregateId; }
+    public void setAggregateId(Long aggregateId) { this.aggregateId = aggregateId; }
+
+    public String getEventType() { return eventType; }
+    public void setEventType(String eventType) { this.eventType = eventType; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public LocalDateTime getProcessedAt() { return processedAt; }
+    public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
@@ -1,17 +1,28 @@
 package com.lazzappe.lazzappe.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "product")
+@DynamicUpdate // only write changed columns, so editing a product doesn't overwrite stock taken by checkout
+@Table(name = "product",
+       indexes = {
+           // keyset pagination for the catalog: (created_at, product_id) with optional leading filter
+           @Index(name = "idx_product_created", columnList = "created_at, product_id"),
+           @Index(name = "idx_product_category_created", columnList = "category, created_at, product_id"),
+           @Index(name = "idx_product_seller_created", columnList = "seller_id, created_at, product_id"),
+           @Index(name = "idx_product_price", columnList = "price, product_id")
+       })
 public class Product {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_id")
+    @TableGenerator(name = "product_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "product", allocationSize = 50)
     @Column(name = "product_id")
     private Long id;
     
@@ -35,14 +46,21 @@ public class Product {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
     
+    // Set when the product is archived; archived products are hidden from every listing
+    // but stay referenced by the orders that sold them
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+    
     @ManyToOne
     @JoinColumn(name = "seller_id", nullable = false)
     private Seller seller;
     
-    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    // No cascades: removal goes through ProductArchiveService's set-based statements,
+    // never through the entity graph (which would load and delete order history row by row)
+    @OneToMany(mappedBy = "product")
     private List<CartItem> cartItems = new ArrayList<>();
     
-    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(mappedBy = "product")
     private List<OrderItem> orderItems = new ArrayList<>();
     
     // Constructors
@@ -85,6 +103,9 @@ public class Product {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+    
     public Seller getSeller() { return seller; }
     public void setSeller(Seller seller) { this.seller = seller; }
     
@@ -9,7 +9,9 @@ import java.util.List;
 public class Seller {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "seller_id")
+    @TableGenerator(name = "seller_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "seller", allocationSize = 50)
     @Column(name = "seller_id")
     private Long id;
 
@@ -26,8 +28,8 @@ public class Seller {
     @Column(name = "business_license")
     private String businessLicense;
 
-    // One-to-many: a seller has many products
-    @OneToMany(mappedBy = "seller", cascade = CascadeType.ALL, orphanRemoval = true)
+    // One-to-many: a seller has many products (archived and removed through ProductArchiveService)
+    @OneToMany(mappedBy = "seller")
     private List<Product> products = new ArrayList<>();
 
     // Getters / setters
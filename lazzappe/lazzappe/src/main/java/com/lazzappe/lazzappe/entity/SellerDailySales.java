@@ -0,0 +1,88 @@
+package com.lazzappe.lazzappe.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Per-seller, per-day sales rollup, keyed by the day the order was placed. Maintained
+ * incrementally by SellerAnalyticsHandler; cancelled and delivered columns move when an
+ * order enters or leaves that status, so net revenue is revenue - cancelledRevenue.
+ */
+@Entity
+@Table(name = "seller_daily_sales")
+@IdClass(SellerDailySales.Key.class)
+public class SellerDailySales {
+
+    @Id
+    @Column(name = "seller_id")
+    private Long sellerId;
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Column(name = "orders_count", nullable = false)
+    private Integer ordersCount = 0;
+
+    @Column(name = "cancelled_orders", nullable = false)
+    private Integer cancelledOrders = 0;
+
+    @Column(name = "delivered_orders", nullable = false)
+    private Integer deliveredOrders = 0;
+
+    @Column(name = "units_sold", nullable = false)
+    private Integer unitsSold = 0;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "cancelled_units", nullable = false)
+    private Integer cancelledUnits = 0;
+
+    @Column(name = "cancelled_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cancelledRevenue = BigDecimal.ZERO;
+
+    @Column(name = "delivered_units", nullable = false)
+    private Integer deliveredUnits = 0;
+
+    @Column(name = "delivered_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal deliveredRevenue = BigDecimal.ZERO;
+
+    public static class Key implements Serializable {
+        private Long sellerId;
+        private LocalDate salesDate;
+
+        public Key() {}
+
+        public Key(Long sellerId, LocalDate salesDate) {
+            this.sellerId = sellerId;
+            this.salesDate = salesDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(sellerId, k.sellerId) && Objects.equals(salesDate, k.salesDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sellerId, salesDate);
+        }
+    }
+
+    // Getters
+    public Long getSellerId() { return sellerId; }
+    public LocalDate getSalesDate() { return salesDate; }
+    public Integer getOrdersCount() { return ordersCount; }
+    public Integer getCancelledOrders() { return cancelledOrders; }
+    public Integer getDeliveredOrders() { return deliveredOrders; }
+    public Integer getUnitsSold() { return unitsSold; }
+    public BigDecimal getRevenue() { return revenue; }
+    public Integer getCancelledUnits() { return cancelledUnits; }
+    public BigDecimal getCancelledRevenue() { return cancelledRevenue; }
+    public Integer getDeliveredUnits() { return deliveredUnits; }
+    public BigDecimal getDeliveredRevenue() { return deliveredRevenue; }
+}
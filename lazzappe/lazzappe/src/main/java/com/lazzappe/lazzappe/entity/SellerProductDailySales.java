@@ -0,0 +1,82 @@
+package com.lazzappe.lazzappe.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Per-seller, per-product, per-day sales rollup; same rules as SellerDailySales.
+ */
+@Entity
+@Table(name = "seller_product_daily_sales")
+@IdClass(SellerProductDailySales.Key.class)
+public class SellerProductDailySales {
+
+    @Id
+    @Column(name = "seller_id")
+    private Long sellerId;
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "units_sold", nullable = false)
+    private Integer unitsSold = 0;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "cancelled_units", nullable = false)
+    private Integer cancelledUnits = 0;
+
+    @Column(name = "cancelled_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal cancelledRevenue = BigDecimal.ZERO;
+
+    @Column(name = "delivered_units", nullable = false)
+    private Integer deliveredUnits = 0;
+
+    @Column(name = "delivered_revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal deliveredRevenue = BigDecimal.ZERO;
+
+    public static class Key implements Serializable {
+        private Long sellerId;
+        private LocalDate salesDate;
+        private Long productId;
+
+        public Key() {}
+
+        public Key(Long sellerId, LocalDate salesDate, Long productId) {
+            this.sellerId = sellerId;
+            this.salesDate = salesDate;
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && Objects.equals(sellerId, k.sellerId)
+                && Objects.equals(salesDate, k.salesDate) && Objects.equals(productId, k.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sellerId, salesDate, productId);
+        }
+    }
+
+    // Getters
+    public Long getSellerId() { return sellerId; }
+    public LocalDate getSalesDate() { return salesDate; }
+    public Long getProductId() { return productId; }
+    public Integer getUnitsSold() { return unitsSold; }
+    public BigDecimal getRevenue() { return revenue; }
+    public Integer getCancelledUnits() { return cancelledUnits; }
+    public BigDecimal getCancelledRevenue() { return cancelledRevenue; }
+    public Integer getDeliveredUnits() { return deliveredUnits; }
+    public BigDecimal getDeliveredRevenue() { return deliveredRevenue; }
+}
@@ -1,13 +1,17 @@
 package com.lazzappe.lazzappe.entity;
 
+import com.lazzappe.lazzappe.security.UserTokenRevocation;
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "user")
+@EntityListeners(UserTokenRevocation.class)
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+    @TableGenerator(name = "user_id", table = "id_sequence", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "user", allocationSize = 50)
     private Long user_id;
 
     @Column(nullable = false, unique = true)
@@ -24,8 +28,8 @@ public class User {
     @Column(name = "current_role")
     private String currentRole; // "SELLER" or "CUSTOMER" - tracks the user's active role without deleting relationships
 
-    @Column(columnDefinition = "LONGTEXT")
-    private String profilePhoto; // Store base64 encoded image or image URL
+    @Column(name = "profile_photo_ref", length = 80)
+    private String profilePhotoRef; // Reference into the photo store ("<sha256>.<ext>"), served by /api/photos
 
     // Remove role string, we can determine role from linked entities
 
@@ -60,6 +64,6 @@ public class User {
     public String getCurrentRole() { return currentRole; }
     public void setCurrentRole(String currentRole) { this.currentRole = currentRole; }
 
-    public String getProfilePhoto() { return profilePhoto; }
-    public void setProfilePhoto(String profilePhoto) { this.profilePhoto = profilePhoto; }
+    public String getProfilePhotoRef() { return profilePhotoRef; }
+    public void setProfilePhotoRef(String profilePhotoRef) { this.profilePhotoRef = profilePhotoRef; }
 }
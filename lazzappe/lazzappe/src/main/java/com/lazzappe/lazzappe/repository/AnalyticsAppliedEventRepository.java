@@ -0,0 +1,20 @@
+package com.lazzappe.lazzappe.repository;
+
+import com.lazzappe.lazzappe.entity.AnalyticsAppliedEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface AnalyticsAppliedEventRepository extends JpaRepository<AnalyticsAppliedEvent, Long> {
+
+    // A concurrent duplicate fails on the primary key and rolls its deltas back with it
+    @Modifying
+    @Query(value = "INSERT INTO analytics_applied_event (outbox_event_id, applied_at) VALUES (:eventId, :appliedAt)",
+           nativeQuery = true)
+    void markApplied(@Param("eventId") Long eventId, @Param("appliedAt") LocalDateTime appliedAt);
+}
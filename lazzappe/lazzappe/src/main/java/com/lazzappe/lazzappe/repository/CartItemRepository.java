@@ -1,13 +1,62 @@
 package com.lazzappe.lazzappe.repository;
 
+import com.lazzappe.lazzappe.dto.CartLineRef;
+import com.lazzappe.lazzappe.dto.CartLineView;
 import com.lazzappe.lazzappe.entity.CartItem;
 import com.lazzappe.lazzappe.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCart(Cart cart);
+
+    // Customer's cart lines with product details in one select
+    @Query("SELECT new com.lazzappe.lazzappe.dto.CartLineView(ci.id, ci.quantity, p.id, p.name, p.description, " +
+           "p.price, p.imageUrl, p.stock) " +
+           "FROM CartItem ci JOIN ci.product p WHERE ci.cart.customer.id = :customerId ORDER BY ci.id")
+    List<CartLineView> findLineViewsByCustomerId(@Param("customerId") Long customerId);
+
+    // Applies the change rather than overwriting, so edits made elsewhere since the line was read are kept
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.subtotal = (ci.quantity + :delta) * :price, ci.quantity = ci.quantity + :delta, " +
+           "ci.version = ci.version + 1 WHERE ci.id = :cartItemId")
+    int addQuantity(@Param("cartItemId") Long cartItemId, @Param("delta") int delta, @Param("price") BigDecimal price);
+
+    // Insert a line, or add to the one already there for the product; one round trip either way.
+    // subtotal is assigned before quantity, while quantity still holds the old value.
+    @Modifying
+    @Query(value = "INSERT INTO cart_item (cart_item_id, cart_id, product_id, quantity, subtotal, version) " +
+                   "VALUES (:cartItemId, :cartId, :productId, :quantity, :price * :quantity, 0) " +
+                   "ON DUPLICATE KEY UPDATE subtotal = :price * (quantity + VALUES(quantity)), " +
+                   "quantity = quantity + VALUES(quantity), version = version + 1",
+           nativeQuery = true)
+    int upsertQuantity(@Param("cartItemId") Long cartItemId, @Param("cartId") Long cartId,
+                       @Param("productId") Long productId, @Param("quantity") int quantity,
+                       @Param("price") BigDecimal price);
+
+    @Query("SELECT new com.lazzappe.lazzappe.dto.CartLineRef(ci.product.id, ci.id, ci.quantity) " +
+           "FROM CartItem ci WHERE ci.cart.id = :cartId AND ci.product.id IN :productIds")
+    List<CartLineRef> findLineRefs(@Param("cartId") Long cartId, @Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
+    int deleteByCartId(@Param("cartId") Long cartId);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.product.id = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+
+    // Lines of a seller's archived products, in every cart
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.product.id IN " +
+           "(SELECT p.id FROM Product p WHERE p.seller.id = :sellerId AND p.deletedAt IS NOT NULL)")
+    int deleteArchivedBySeller(@Param("sellerId") Long sellerId);
 }
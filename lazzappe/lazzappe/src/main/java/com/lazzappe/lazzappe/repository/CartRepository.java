@@ -3,11 +3,32 @@ package com.lazzappe.lazzappe.repository;
 import com.lazzappe.lazzappe.entity.Cart;
 import com.lazzappe.lazzappe.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByCustomer(Customer customer);
+
+    @Query("SELECT c.id FROM Cart c WHERE c.customer.id = :customerId")
+    Optional<Long> findIdByCustomerId(@Param("customerId") Long customerId);
+
+    @Modifying
+    @Query("UPDATE Cart c SET c.updatedAt = :updatedAt, c.version = c.version + 1 WHERE c.id = :cartId")
+    int touch(@Param("cartId") Long cartId, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Bulk delete; the caller removes the cart's items first
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id = :cartId")
+    int deleteCartById(@Param("cartId") Long cartId);
+
+    // Deletes nothing if the cart was flushed again after the given version was read
+    @Modifying
+    @Query("DELETE FROM Cart c WHERE c.id = :cartId AND c.version = :version")
+    int deleteCartByIdAndVersion(@Param("cartId") Long cartId, @Param("version") long version);
 }
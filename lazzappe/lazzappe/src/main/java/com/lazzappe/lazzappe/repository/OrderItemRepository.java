@@ -0,0 +1,42 @@
+package com.lazzappe.lazzappe.repository;
+
+import com.lazzappe.lazzappe.dto.OrderLineView;
+import com.lazzappe.lazzappe.dto.OrderSalesLine;
+import com.lazzappe.lazzappe.entity.OrderItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    // Page of order ids containing the seller's products, driven from product(seller_id) -> order_item(product_id).
+    // Slices read one id past the page to tell whether another page follows.
+    @Query("SELECT oi.order.id FROM OrderItem oi WHERE oi.product.seller.id = :sellerId " +
+           "GROUP BY oi.order.id ORDER BY oi.order.id DESC")
+    Slice<Long> findOrderIdsBySeller(@Param("sellerId") Long sellerId, Pageable pageable);
+
+    @Query("SELECT o.id FROM OrderItem oi JOIN oi.order o WHERE oi.product.seller.id = :sellerId AND o.status = :status " +
+           "GROUP BY o.id ORDER BY o.id DESC")
+    Slice<Long> findOrderIdsBySellerAndStatus(@Param("sellerId") Long sellerId, @Param("status") String status, Pageable pageable);
+
+    // The seller's lines for a page of orders
+    @Query("SELECT new com.lazzappe.lazzappe.dto.OrderLineView(oi.order.id, oi.id, p.id, p.name, p.imageUrl, " +
+           "oi.quantity, oi.price, oi.subtotal) " +
+           "FROM OrderItem oi JOIN oi.product p " +
+           "WHERE oi.order.id IN :orderIds AND p.seller.id = :sellerId ORDER BY oi.order.id, oi.id")
+    List<OrderLineView> findSellerLinesForOrders(@Param("sellerId") Long sellerId, @Param("orderIds") Collection<Long> orderIds);
+
+    // Every line of one order with the seller it was bought from, for the sales rollups.
+    // Lines from before the seller was recorded fall back to the product's current seller
+    @Query("SELECT new com.lazzappe.lazzappe.dto.OrderSalesLine(COALESCE(os.id, s.id), p.id, oi.quantity, oi.subtotal, o.orderDate) " +
+           "FROM OrderItem oi JOIN oi.order o JOIN oi.product p LEFT JOIN oi.seller os LEFT JOIN p.seller s " +
+           "WHERE o.id = :orderId AND (os.id IS NOT NULL OR s.id IS NOT NULL)")
+    List<OrderSalesLine> findSalesLines(@Param("orderId") Long orderId);
+}
@@ -1,12 +1,43 @@
 package com.lazzappe.lazzappe.repository;
 
+import com.lazzappe.lazzappe.dto.OrderLineView;
+import com.lazzappe.lazzappe.dto.OrderView;
 import com.lazzappe.lazzappe.entity.Order;
 import com.lazzappe.lazzappe.entity.Customer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByCustomer(Customer customer);
+
+    // Order history page for a customer within [from, to), newest first (uses idx_orders_customer_date)
+    @Query("SELECT new com.lazzappe.lazzappe.dto.OrderView(o.id, o.orderDate, o.totalAmount, o.status, " +
+           "o.billingStatus, o.shippingAddress, o.paymentMethod) " +
+           "FROM Order o WHERE o.customer.id = :customerId AND o.orderDate >= :from AND o.orderDate < :to " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    Slice<OrderView> findHistory(@Param("customerId") Long customerId,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to,
+                                Pageable pageable);
+
+    // Seller's view of a page of orders, with the customer's username
+    @Query("SELECT new com.lazzappe.lazzappe.dto.OrderView(o.id, o.orderDate, o.totalAmount, o.status, " +
+           "o.billingStatus, o.shippingAddress, o.paymentMethod, u.username) " +
+           "FROM Order o JOIN o.customer c JOIN c.user u WHERE o.id IN :orderIds ORDER BY o.id DESC")
+    List<OrderView> findSellerViews(@Param("orderIds") Collection<Long> orderIds);
+
+    // All lines for a page of orders in one select
+    @Query("SELECT new com.lazzappe.lazzappe.dto.OrderLineView(oi.order.id, oi.id, p.id, p.name, p.imageUrl, " +
+           "oi.quantity, oi.price, oi.subtotal) " +
+           "FROM OrderItem oi JOIN oi.product p WHERE oi.order.id IN :orderIds ORDER BY oi.order.id, oi.id")
+    List<OrderLineView> findLinesForOrders(@Param("orderIds") Collection<Long> orderIds);
 }
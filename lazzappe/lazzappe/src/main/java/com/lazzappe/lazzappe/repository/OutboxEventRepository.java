@@ -0,0 +1,36 @@
+package com.lazzappe.lazzappe.repository;
+
+import com.lazzappe.lazzappe.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Due events, oldest first, each the earliest undelivered one of its aggregate, so a
+    // later event is never handed out while an earlier one is still pending, leased by
+    // another dispatcher or given up on. Rows another dispatcher holds are skipped
+    // (SKIP LOCKED where supported)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now"
+         + " AND NOT EXISTS (SELECT p.id FROM OutboxEvent p WHERE p.aggregateType = e.aggregateType"
+         + " AND p.aggregateId = e.aggregateId AND p.id < e.id AND p.status IN ('PENDING', 'FAILED'))"
+         + " ORDER BY e.id")
+    List<OutboxEvent> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = 'DONE' AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
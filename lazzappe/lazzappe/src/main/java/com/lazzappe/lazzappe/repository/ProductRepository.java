@@ -1,16 +1,82 @@
 package com.lazzappe.lazzappe.repository;
 
+import com.lazzappe.lazzappe.dto.ProductView;
 import com.lazzappe.lazzappe.entity.Product;
 import com.lazzappe.lazzappe.entity.Seller;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
     List<Product> findBySeller(Seller seller);
     List<Product> findBySeller_Id(Long sellerId);
-    void deleteBySeller(Seller seller);
-    void deleteBySeller_Id(Long sellerId);
+
+    // Atomic stock take: matches no row (returns 0) when stock is short or the product was archived,
+    // so concurrent checkouts can't oversell
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity " +
+           "WHERE p.id = :productId AND p.stock >= :quantity AND p.deletedAt IS NULL")
+    int decrementStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids AND p.deletedAt IS NULL")
+    List<Long> findLiveIds(@Param("ids") Collection<Long> ids);
+
+    // ---- archive and removal: one statement each, whatever the number of products ----
+
+    @Modifying
+    @Query("UPDATE Product p SET p.deletedAt = :now WHERE p.id = :productId AND p.deletedAt IS NULL")
+    int archive(@Param("productId") Long productId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.deletedAt = :now WHERE p.seller.id = :sellerId AND p.deletedAt IS NULL")
+    int archiveBySeller(@Param("sellerId") Long sellerId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT p.id FROM Product p WHERE p.seller.id = :sellerId AND p.deletedAt = :archivedAt")
+    List<Long> findIdsArchivedAt(@Param("sellerId") Long sellerId, @Param("archivedAt") LocalDateTime archivedAt);
+
+    // Archived products no order refers to; the rest stay for order history
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.seller.id = :sellerId AND p.deletedAt IS NOT NULL " +
+           "AND NOT EXISTS (SELECT oi.id FROM OrderItem oi WHERE oi.product = p)")
+    int purgeArchivedBySeller(@Param("sellerId") Long sellerId);
+
+    // Product list projections for streaming responses. Must be consumed inside a transaction.
+    // Fetch size is a hint; with MySQL add useCursorFetch=true to the JDBC URL to stream rows from the server.
+    String PRODUCT_VIEW = "SELECT new com.lazzappe.lazzappe.dto.ProductView(p.id, p.name, p.description, p.price, " +
+            "p.stock, p.imageUrl, p.category, s.id, u.user_id, p.createdAt) " +
+            "FROM Product p LEFT JOIN p.seller s LEFT JOIN s.user u ";
+
+    @Query(PRODUCT_VIEW + "WHERE p.id = :id AND p.deletedAt IS NULL")
+    Optional<ProductView> findViewById(@Param("id") Long id);
+
+    @Query(PRODUCT_VIEW + "WHERE p.id IN :ids AND p.deletedAt IS NULL")
+    List<ProductView> findViewsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(PRODUCT_VIEW + "WHERE p.deletedAt IS NULL ORDER BY p.id")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ProductView> streamAllViews();
+
+    @Query(PRODUCT_VIEW + "WHERE s.id = :sellerId AND p.deletedAt IS NULL ORDER BY p.id")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ProductView> streamViewsBySeller(@Param("sellerId") Long sellerId);
+
+    // One catalog page without the COUNT(*) a Page would issue; callers ask for limit + 1 to detect more rows
+    default List<Product> findCatalogPage(Specification<Product> spec, Sort sort, int limit) {
+        return findBy(spec, q -> q.sortBy(sort).limit(limit).all());
+    }
 }
@@ -0,0 +1,72 @@
+package com.lazzappe.lazzappe.repository;
+
+import com.lazzappe.lazzappe.entity.Product;
+import com.lazzappe.lazzappe.entity.Seller;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Building blocks for the catalog query. Each filter only adds a predicate when
+ * it is actually used so MySQL can pick the matching product index.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {}
+
+    // Fetch seller (and its user) in the same select so ProductView.of doesn't query per row
+    public static Specification<Product> withSeller() {
+        return (root, query, cb) -> {
+            if (query != null && query.getResultType() != Long.class && query.getResultType() != long.class) {
+                Fetch<Product, Seller> seller = root.fetch("seller", JoinType.LEFT);
+                seller.fetch("user", JoinType.LEFT);
+            }
+            return cb.conjunction();
+        };
+    }
+
+    // Archived products never show in the catalog
+    public static Specification<Product> live() {
+        return (root, query, cb) -> cb.isNull(root.get("deletedAt"));
+    }
+
+    public static Specification<Product> inCategory(String category) {
+        return (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+
+    public static Specification<Product> ofSeller(Long sellerId) {
+        return (root, query, cb) -> cb.equal(root.get("seller").get("id"), sellerId);
+    }
+
+    public static Specification<Product> priceAtLeast(BigDecimal minPrice) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+
+    public static Specification<Product> priceAtMost(BigDecimal maxPrice) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+
+    // Keyset predicates: rows strictly after the (value, product_id) pair of the last row returned
+    public static Specification<Product> createdAfterCursor(LocalDateTime createdAt, Long id, boolean descending) {
+        return keyset("createdAt", createdAt, id, descending);
+    }
+
+    public static Specification<Product> priceAfterCursor(BigDecimal price, Long id, boolean descending) {
+        return keyset("price", price, id, descending);
+    }
+
+    private static <T extends Comparable<? super T>> Specification<Product> keyset(String attribute, T value, Long id, boolean descending) {
+        return (root, query, cb) -> {
+            Path<T> path = root.get(attribute);
+            Path<Long> idPath = root.get("id");
+            if (descending) {
+                return cb.or(cb.lessThan(path, value), cb.and(cb.equal(path, value), cb.lessThan(idPath, id)));
+            }
+            return cb.or(cb.greaterThan(path, value), cb.and(cb.equal(path, value), cb.greaterThan(idPath, id)));
+        };
+    }
+}
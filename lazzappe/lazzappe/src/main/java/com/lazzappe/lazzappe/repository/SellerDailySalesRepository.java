@@ -0,0 +1,47 @@
+package com.lazzappe.lazzappe.repository;
+
+import com.lazzappe.lazzappe.dto.SellerDailySalesView;
+import com.lazzappe.lazzappe.entity.SellerDailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SellerDailySalesRepository extends JpaRepository<SellerDailySales, SellerDailySales.Key> {
+
+    // Adds the deltas to the day's row, creating it on first use; one statement, no read
+    @Modifying
+    @Query(value = "INSERT INTO seller_daily_sales (seller_id, sales_date, orders_count, cancelled_orders, delivered_orders, " +
+                   "units_sold, revenue, cancelled_units, cancelled_revenue, delivered_units, delivered_revenue) " +
+                   "VALUES (:sellerId, :salesDate, :orders, :cancelledOrders, :deliveredOrders, " +
+                   ":units, :revenue, :cancelledUnits, :cancelledRevenue, :deliveredUnits, :deliveredRevenue) " +
+                   "ON DUPLICATE KEY UPDATE orders_count = orders_count + VALUES(orders_count), " +
+                   "cancelled_orders = cancelled_orders + VALUES(cancelled_orders), " +
+                   "delivered_orders = delivered_orders + VALUES(delivered_orders), " +
+                   "units_sold = units_sold + VALUES(units_sold), revenue = revenue + VALUES(revenue), " +
+                   "cancelled_units = cancelled_units + VALUES(cancelled_units), " +
+                   "cancelled_revenue = cancelled_revenue + VALUES(cancelled_revenue), " +
+                   "delivered_units = delivered_units + VALUES(delivered_units), " +
+                   "delivered_revenue = delivered_revenue + VALUES(delivered_revenue)",
+           nativeQuery = true)
+    void addDeltas(@Param("sellerId") Long sellerId, @Param("salesDate") LocalDate salesDate,
+                   @Param("orders") int orders, @Param("cancelledOrders") int cancelledOrders,
+                   @Param("deliveredOrders") int deliveredOrders, @Param("units") int units,
+                   @Param("revenue") BigDecimal revenue, @Param("cancelledUnits") int cancelledUnits,
+                   @Param("cancelledRevenue") BigDecimal cancelledRevenue, @Param("deliveredUnits") int deliveredUnits,
+                   @Param("deliveredRevenue") BigDecimal deliveredRevenue);
+
+    // Primary key range scan; both bounds inclusive
+    @Query("SELECT new com.lazzappe.lazzappe.dto.SellerDailySalesView(s.salesDate, s.ordersCount, s.cancelledOrders, " +
+           "s.deliveredOrders, s.unitsSold, s.revenue, s.cancelledUnits, s.cancelledRevenue, s.deliveredUnits, " +
+           "s.deliveredRevenue) FROM SellerDailySales s " +
+           "WHERE s.sellerId = :sellerId AND s.salesDate BETWEEN :from AND :to ORDER BY s.salesDate")
+    List<SellerDailySalesView> findRange(@Param("sellerId") Long sellerId, @Param("from") LocalDate from,
+                                         @Param("to") LocalDate to);
+}
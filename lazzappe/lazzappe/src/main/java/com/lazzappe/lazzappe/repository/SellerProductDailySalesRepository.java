@@ -0,0 +1,45 @@
+package com.lazzappe.lazzappe.repository;
+
+import com.lazzappe.lazzappe.dto.SellerProductSalesView;
+import com.lazzappe.lazzappe.entity.SellerProductDailySales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SellerProductDailySalesRepository extends JpaRepository<SellerProductDailySales, SellerProductDailySales.Key> {
+
+    @Modifying
+    @Query(value = "INSERT INTO seller_product_daily_sales (seller_id, sales_date, product_id, units_sold, revenue, " +
+                   "cancelled_units, cancelled_revenue, delivered_units, delivered_revenue) " +
+                   "VALUES (:sellerId, :salesDate, :productId, :units, :revenue, " +
+                   ":cancelledUnits, :cancelledRevenue, :deliveredUnits, :deliveredRevenue) " +
+                   "ON DUPLICATE KEY UPDATE units_sold = units_sold + VALUES(units_sold), revenue = revenue + VALUES(revenue), " +
+                   "cancelled_units = cancelled_units + VALUES(cancelled_units), " +
+                   "cancelled_revenue = cancelled_revenue + VALUES(cancelled_revenue), " +
+                   "delivered_units = delivered_units + VALUES(delivered_units), " +
+                   "delivered_revenue = delivered_revenue + VALUES(delivered_revenue)",
+           nativeQuery = true)
+    void addDeltas(@Param("sellerId") Long sellerId, @Param("salesDate") LocalDate salesDate,
+                   @Param("productId") Long productId, @Param("units") int units,
+                   @Param("revenue") BigDecimal revenue, @Param("cancelledUnits") int cancelledUnits,
+                   @Param("cancelledRevenue") BigDecimal cancelledRevenue, @Param("deliveredUnits") int deliveredUnits,
+                   @Param("deliveredRevenue") BigDecimal deliveredRevenue);
+
+    // Best sellers over the range by net revenue; the product join is only for the name,
+    // so products deleted since still show up
+    @Query("SELECT new com.lazzappe.lazzappe.dto.SellerProductSalesView(s.productId, p.name, SUM(s.unitsSold), " +
+           "SUM(s.revenue), SUM(s.cancelledUnits), SUM(s.revenue) - SUM(s.cancelledRevenue)) " +
+           "FROM SellerProductDailySales s LEFT JOIN Product p ON p.id = s.productId " +
+           "WHERE s.sellerId = :sellerId AND s.salesDate BETWEEN :from AND :to " +
+           "GROUP BY s.productId, p.name ORDER BY SUM(s.revenue) - SUM(s.cancelledRevenue) DESC, s.productId")
+    List<SellerProductSalesView> findTopProducts(@Param("sellerId") Long sellerId, @Param("from") LocalDate from,
+                                                 @Param("to") LocalDate to, Pageable pageable);
+}
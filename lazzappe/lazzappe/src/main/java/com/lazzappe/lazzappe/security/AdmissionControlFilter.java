@@ -0,0 +1,140 @@
+package com.lazzappe.lazzappe.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits and concurrency admission for the expensive routes, set up per route in
+ * SecurityConfig. Runs after the JWT filter so per-user buckets know the caller.
+ *
+ * A route can limit each client IP and each authenticated user with a token bucket,
+ * and can take a permit from a limiter shared by all JDBC-heavy routes. Either kind
+ * of refusal is answered at once with 429 and Retry-After, before any database work,
+ * so a burst on login cannot take every pooled connection away from browsing.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Duration PERIOD = Duration.ofMinutes(1);
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Semaphore concurrency;
+    private final MeterRegistry meterRegistry;
+
+    public AdmissionControlFilter(int maxConcurrent, MeterRegistry meterRegistry) {
+        this.concurrency = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Limits for one method and path. A limit of 0 or less leaves that limit off. */
+    public Route route(String method, String path) {
+        Route route = new Route(method, path);
+        routes.add(route);
+        return route;
+    }
+
+    public static class Route {
+        private final String method;
+        private final String path;
+        private TokenBucketLimiter perIp;
+        private TokenBucketLimiter perUser;
+        private boolean concurrencyLimited;
+
+        private Route(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+
+        /** Requests per minute from one client address, also the burst size. */
+        public Route perIp(int perMinute) {
+            this.perIp = perMinute > 0 ? new TokenBucketLimiter(perMinute, PERIOD) : null;
+            return this;
+        }
+
+        /** Requests per minute from one signed-in user, also the burst size. */
+        public Route perUser(int perMinute) {
+            this.perUser = perMinute > 0 ? new TokenBucketLimiter(perMinute, PERIOD) : null;
+            return this;
+        }
+
+        /** Count against the shared limit on concurrent JDBC-heavy requests. */
+        public Route concurrencyLimited() {
+            this.concurrencyLimited = true;
+            return this;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Route route = match(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Client address as the container sees it; behind a proxy set server.forward-headers-strategy
+        if (route.perIp != null) {
+            long wait = route.perIp.tryAcquire(request.getRemoteAddr());
+            if (wait > 0) {
+                reject(response, route, "ip", wait);
+                return;
+            }
+        }
+        if (route.perUser != null) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.getPrincipal() instanceof JwtPrincipal principal) {
+                long wait = route.perUser.tryAcquire(String.valueOf(principal.getUserId()));
+                if (wait > 0) {
+                    reject(response, route, "user", wait);
+                    return;
+                }
+            }
+        }
+
+        if (!route.concurrencyLimited || concurrency == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        // Fast-fail rather than queue: a waiting request would only hold a Tomcat thread
+        if (!concurrency.tryAcquire()) {
+            reject(response, route, "concurrency", TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concurrency.release();
+        }
+    }
+
+    private Route match(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Route route : routes) {
+            if (route.method.equalsIgnoreCase(request.getMethod()) && route.path.equals(path)) return route;
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, Route route, String reason, long waitNanos) throws IOException {
+        meterRegistry.counter("lazzappe.admission.rejected", "uri", route.path, "reason", reason).increment();
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests, please retry later\"}");
+    }
+}
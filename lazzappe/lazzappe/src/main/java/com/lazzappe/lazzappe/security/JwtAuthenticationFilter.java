@@ -1,23 +1,24 @@
 package com.lazzappe.lazzappe.security;
 
-import com.lazzappe.lazzappe.entity.User;
-import com.lazzappe.lazzappe.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Optional;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -26,7 +27,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserRepository userRepository;
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -34,31 +38,44 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        // Extract JWT token from Authorization header and authenticate from its claims alone
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(7);
 
-        // Extract JWT token from Authorization header
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            try {
-                username = jwtUtil.extractUsername(jwt);
-            } catch (Exception e) {
-                logger.error("JWT token extraction failed: " + e.getMessage());
+            long start = System.nanoTime();
+            String result = "cache_hit";
+            JwtPrincipal principal = tokenCache.get(jwt);
+            if (principal == null) {
+                result = "verified";
+                Claims claims = jwtUtil.parseValidClaims(jwt);
+                Long userId = claims != null ? claims.get(JwtUtil.CLAIM_USER_ID, Long.class) : null;
+                Long issuedAt = claims != null ? JwtUtil.issuedAtMillis(claims) : null;
+                if (claims != null && claims.getSubject() != null && !tokenCache.isRevoked(userId, issuedAt)) {
+                    principal = new JwtPrincipal(userId, claims.getSubject(), claims.get(JwtUtil.CLAIM_ROLE, String.class));
+                    // Tokens without an expiry are verified on every request rather than cached
+                    if (claims.getExpiration() != null) {
+                        tokenCache.put(jwt, principal, claims.getExpiration().getTime(), issuedAt);
+                    }
+                } else {
+                    result = "rejected";
+                    logger.debug("JWT token rejected");
+                }
             }
-        }
+            // Parse and signature check time; a cache hit skips both
+            meterRegistry.timer("lazzappe.jwt.authentication", "result", result)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            if (principal != null) {
+                List<GrantedAuthority> authorities = principal.getRole() != null
+                    ? List.of(new SimpleGrantedAuthority("ROLE_" + principal.getRole()))
+                    : Collections.emptyList();
 
-        // Validate token and set authentication
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Optional<User> userOpt = userRepository.findByUsername(username);
-            
-            if (userOpt.isPresent() && jwtUtil.validateToken(jwt, username)) {
-                User user = userOpt.get();
-                
                 // Create authentication token
-                UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(username, null, new ArrayList<>());
+                UsernamePasswordAuthenticationToken authToken =
+                    new UsernamePasswordAuthenticationToken(principal, null, authorities);
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
+
                 // Set authentication in security context
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
@@ -66,4 +83,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
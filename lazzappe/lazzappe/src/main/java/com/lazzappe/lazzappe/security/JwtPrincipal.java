@@ -0,0 +1,32 @@
+package com.lazzappe.lazzappe.security;
+
+import java.security.Principal;
+
+/**
+ * Authenticated caller as described by the token claims. Implements Principal so
+ * Authentication.getName() keeps returning the username.
+ */
+public class JwtPrincipal implements Principal {
+
+    private final Long userId;
+    private final String username;
+    private final String role;
+
+    public JwtPrincipal(Long userId, String username, String role) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+    }
+
+    public Long getUserId() { return userId; }
+
+    public String getUsername() { return username; }
+
+    public String getRole() { return role; }
+
+    @Override
+    public String getName() { return username; }
+
+    @Override
+    public String toString() { return username; }
+}
@@ -1,6 +1,9 @@
 package com.lazzappe.lazzappe.security;
 
+import com.lazzappe.lazzappe.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -17,11 +20,16 @@ public class JwtUtil {
 
     // Secret key for signing JWT (in production, use environment variable)
     private static final String SECRET_KEY = "lazzappe_secret_key_must_be_at_least_256_bits_long_for_HS256_algorithm";
-    private static final long JWT_EXPIRATION = 1000 * 60 * 60 * 24; // 24 hours
+    static final long JWT_EXPIRATION = 1000 * 60 * 60 * 24; // 24 hours
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
-    }
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    // iat in milliseconds; iat itself only has seconds, too coarse to tell a token from its replacement
+    public static final String CLAIM_ISSUED_MS = "iat_ms";
+
+    // Key and parser are immutable and thread-safe, so build them once
+    private final Key signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
 
     // Generate token with username
     public String generateToken(String username) {
@@ -29,17 +37,44 @@ public class JwtUtil {
         return createToken(claims, username);
     }
 
+    // Generate token carrying user id and active role so requests can be authenticated without a DB lookup
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getUser_id());
+        String role = (user.getCurrentRole() != null) ? user.getCurrentRole() : (user.getSeller() != null ? "SELLER" : "CUSTOMER");
+        claims.put(CLAIM_ROLE, role);
+        return createToken(claims, user.getUsername());
+    }
+
     // Create JWT token
     private String createToken(Map<String, Object> claims, String subject) {
+        long now = System.currentTimeMillis();
+        claims.put(CLAIM_ISSUED_MS, now);
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + JWT_EXPIRATION))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + JWT_EXPIRATION))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // Verify signature and expiry in a single parse; returns null when the token is not valid
+    public Claims parseValidClaims(String token) {
+        try {
+            return extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Issue time in milliseconds, from iat_ms or else iat; null when the token has neither
+    public static Long issuedAtMillis(Claims claims) {
+        Long millis = claims.get(CLAIM_ISSUED_MS, Long.class);
+        if (millis != null) return millis;
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : null;
+    }
+
     // Extract username from token
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -58,21 +93,12 @@ public class JwtUtil {
 
     // Extract all claims
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    // Check if token is expired
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    // Validate token
+    // Validate token (the parser already rejects expired tokens)
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        Claims claims = parseValidClaims(token);
+        return claims != null && username.equals(claims.getSubject());
     }
-}
\ No newline at end of file
+}
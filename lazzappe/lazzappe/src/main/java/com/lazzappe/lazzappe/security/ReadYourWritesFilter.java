@@ -0,0 +1,38 @@
+package com.lazzappe.lazzappe.security;
+
+import com.lazzappe.lazzappe.config.ReplicaRoutingDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Tells ReplicaRoutingDataSource who the request is for, so a client that just wrote
+ * reads its own writes from the primary. The client is the signed-in user and the
+ * client address; the address covers register followed by login, before any token.
+ * Added in SecurityConfig after the JWT filter, only when replicas are configured.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String address = "ip:" + request.getRemoteAddr();
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof JwtPrincipal principal) {
+            ReplicaRoutingDataSource.bindClient("user:" + principal.getUserId(), address);
+        } else {
+            ReplicaRoutingDataSource.bindClient(address);
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clearClient();
+        }
+    }
+}
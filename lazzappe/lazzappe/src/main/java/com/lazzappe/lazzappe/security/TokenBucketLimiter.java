@@ -0,0 +1,53 @@
+package com.lazzappe.lazzappe.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token buckets keyed by client (an IP address or a user id).
+ *
+ * Each key may burst up to the full allowance and then earns tokens back at the
+ * allowance per period. Buckets live in a Caffeine map (striped, no global lock),
+ * and each bucket is updated with a compare-and-set, so concurrent requests never
+ * block each other. Buckets left idle long enough to refill completely are
+ * dropped, and the map is capped so a spray of addresses cannot grow it unbounded.
+ */
+public class TokenBucketLimiter {
+
+    private static final long MAX_KEYS = 100_000;
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final Cache<String, AtomicReference<Bucket>> buckets;
+
+    private record Bucket(double tokens, long updatedAt) {}
+
+    public TokenBucketLimiter(int allowance, Duration period) {
+        this.capacity = allowance;
+        this.tokensPerNano = allowance / (double) period.toNanos();
+        this.buckets = Caffeine.newBuilder()
+            .maximumSize(MAX_KEYS)
+            .expireAfterAccess(period.toNanos(), TimeUnit.NANOSECONDS)
+            .build();
+    }
+
+    /** Take a token for the key; 0 if granted, otherwise nanos until one is available. */
+    public long tryAcquire(String key) {
+        AtomicReference<Bucket> ref = buckets.get(key, k -> new AtomicReference<>(new Bucket(capacity, System.nanoTime())));
+        while (true) {
+            Bucket current = ref.get();
+            long now = System.nanoTime();
+            double tokens = Math.min(capacity, current.tokens() + (now - current.updatedAt()) * tokensPerNano);
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            if (ref.compareAndSet(current, new Bucket(tokens - 1, now))) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.lazzappe.lazzappe.security;
+
+import com.lazzappe.lazzappe.entity.User;
+import jakarta.persistence.PostRemove;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener on User: a deleted account's tokens stop authenticating at once
+ * instead of when they expire.
+ */
+@Component
+public class UserTokenRevocation {
+
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @PostRemove
+    public void userDeleted(User user) {
+        tokenCache.revokeUser(user.getUser_id());
+    }
+}
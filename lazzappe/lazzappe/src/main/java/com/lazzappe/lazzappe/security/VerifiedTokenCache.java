@@ -0,0 +1,104 @@
+package com.lazzappe.lazzappe.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of tokens whose signature has already been checked, keyed by the
+ * SHA-256 digest of the token. Entries expire together with the token itself.
+ *
+ * Also remembers, per user, when their tokens were revoked (role switch, account
+ * deleted): tokens issued before that moment are dropped from the cache and refused
+ * on verification until they would have expired anyway. Like the cache, revocations
+ * are held by this instance only.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // user id -> epoch millis; tokens issued before it are revoked
+    private final Cache<Long, Long> revokedBefore = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(JwtUtil.JWT_EXPIRATION))
+        .build();
+
+    private static final class Entry {
+        final JwtPrincipal principal;
+        final long expiresAtMillis;
+        final Long issuedAtMillis;
+
+        Entry(JwtPrincipal principal, long expiresAtMillis, Long issuedAtMillis) {
+            this.principal = principal;
+            this.expiresAtMillis = expiresAtMillis;
+            this.issuedAtMillis = issuedAtMillis;
+        }
+    }
+
+    public JwtPrincipal get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAtMillis <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    public void put(String token, JwtPrincipal principal, long expiresAtMillis, Long issuedAtMillis) {
+        if (entries.size() >= MAX_ENTRIES) evict();
+        String key = digest(token);
+        Entry entry = new Entry(principal, expiresAtMillis, issuedAtMillis);
+        entries.put(key, entry);
+        // A revocation that raced with this put has either seen the entry or is seen here
+        if (isRevoked(principal.getUserId(), issuedAtMillis)) entries.remove(key, entry);
+    }
+
+    /** Revoke every token the user holds now; tokens issued after this call stay valid. */
+    public void revokeUser(Long userId) {
+        if (userId == null) return;
+        revokedBefore.put(userId, System.currentTimeMillis());
+        entries.values().removeIf(e -> userId.equals(e.principal.getUserId()));
+    }
+
+    public boolean isRevoked(Long userId, Long issuedAtMillis) {
+        if (userId == null) return false;
+        Long before = revokedBefore.getIfPresent(userId);
+        return before != null && (issuedAtMillis == null || issuedAtMillis < before);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Drop expired tokens first; if still full, drop an arbitrary tenth to make room
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAtMillis <= now);
+        int toRemove = entries.size() - (MAX_ENTRIES - MAX_ENTRIES / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (toRemove-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.dto.CartLineRef;
+import com.lazzappe.lazzappe.dto.CartLineView;
+import com.lazzappe.lazzappe.dto.CartLineView.CartProductView;
+import com.lazzappe.lazzappe.entity.Cart;
+import com.lazzappe.lazzappe.entity.CartItem;
+import com.lazzappe.lazzappe.repository.CartItemRepository;
+import com.lazzappe.lazzappe.repository.CartRepository;
+import com.lazzappe.lazzappe.repository.CustomerRepository;
+import com.lazzappe.lazzappe.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cart tier keyed by customer id.
+ *
+ * Cart reads and edits are served from memory; changes are coalesced and written to
+ * cart/cart_item by a background flush every couple of seconds, and synchronously
+ * before checkout. Idle carts are flushed and dropped, and the number of cached carts
+ * is bounded. Lines not yet inserted are addressed by the negated product id, so the
+ * client gets a usable cart_item_id without waiting for the database; that id stays
+ * valid for the line after it is inserted.
+ *
+ * Flushes write quantity changes, not absolute quantities: an existing line gets
+ * quantity = quantity + change, and a new line is upserted into the one-line-per-product
+ * unique key, adding to any row written meanwhile. Concurrent writers therefore merge
+ * instead of duplicating lines or losing each other's adds. Every flush bumps the cart's
+ * version, which checkout checks before deleting the cart.
+ *
+ * The cache is per application instance: run a single instance or route a customer's
+ * requests to the same instance. Unflushed edits (at most one flush interval) are lost
+ * if the process dies.
+ */
+@Service
+public class CartCache {
+
+    private static final int MAX_CARTS = 10_000;
+    private static final int MAX_USER_MAPPINGS = 100_000;
+    private static final long IDLE_EVICT_MS = 30 * 60 * 1000L;
+    private static final long FLUSH_INTERVAL_MS = 2_000L;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, CartState> carts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> customerIdByUser = new ConcurrentHashMap<>();
+
+    public CartCache(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private static final class Line {
+        Long cartItemId; // null until inserted
+        final Long productId;
+        int quantity;
+        int flushedQuantity; // quantity as of the last flush; the next flush writes the difference
+        CartProductView product;
+        long version;
+        long flushedVersion = -1;
+
+        Line(Long productId) {
+            this.productId = productId;
+        }
+
+        Long clientId() {
+            return cartItemId != null ? cartItemId : -productId;
+        }
+
+        CartLineView view() {
+            return new CartLineView(clientId(), product, quantity);
+        }
+    }
+
+    private static final class CartState {
+        final Long customerId;
+        Long cartId;
+        final LinkedHashMap<Long, Line> lines = new LinkedHashMap<>(); // by product id
+        final Set<Long> deletedItemIds = new HashSet<>();
+        // Guards the fields above; flushLock serializes flushes and is held across the database write
+        final ReentrantLock lock = new ReentrantLock();
+        final ReentrantLock flushLock = new ReentrantLock();
+        volatile boolean dirty;
+        boolean evicted;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        CartState(Long customerId) {
+            this.customerId = customerId;
+        }
+
+        // A negated product id keeps naming its line after the flush gives it a row id,
+        // since clients hold on to the id they were first handed
+        Line find(Long clientId) {
+            if (clientId < 0) return lines.get(-clientId);
+            for (Line line : lines.values()) {
+                if (Objects.equals(line.cartItemId, clientId)) return line;
+            }
+            return null;
+        }
+
+        void touch(Line line) {
+            line.version++;
+            dirty = true;
+        }
+    }
+
+    // ---------------- lookups ----------------
+
+    /** Customer id for a user, remembered so cart calls don't need to load the user. */
+    public Long customerIdForUser(Long userId, Supplier<Long> loader) {
+        Long customerId = customerIdByUser.get(userId);
+        if (customerId == null) {
+            customerId = loader.get();
+            if (customerId != null) {
+                if (customerIdByUser.size() >= MAX_USER_MAPPINGS) customerIdByUser.clear();
+                customerIdByUser.put(userId, customerId);
+            }
+        }
+        return customerId;
+    }
+
+    public List<CartLineView> view(Long customerId) {
+        return withCart(customerId, cart -> {
+            List<CartLineView> out = new ArrayList<>(cart.lines.size());
+            for (Line line : cart.lines.values()) out.add(line.view());
+            return out;
+        });
+    }
+
+    public int quantityOf(Long customerId, Long productId) {
+        return withCart(customerId, cart -> {
+            Line line = cart.lines.get(productId);
+            return line != null ? line.quantity : 0;
+        });
+    }
+
+    /** Line by the id the client was given, or null if it is not in this customer's cart. */
+    public CartLineView find(Long customerId, Long cartItemId) {
+        return withCart(customerId, cart -> {
+            Line line = cart.find(cartItemId);
+            return line != null ? line.view() : null;
+        });
+    }
+
+    // ---------------- edits ----------------
+
+    /**
+     * Add quantity of a product, merging with an existing line. Returns null without
+     * changing anything if the resulting quantity would exceed available.
+     */
+    public CartLineView add(Long customerId, CartProductView product, int quantity, int available) {
+        return withCart(customerId, cart -> {
+            Line line = cart.lines.get(product.productId());
+            int current = line != null ? line.quantity : 0;
+            if (current + quantity > available) return null;
+            if (line == null) {
+                line = new Line(product.productId());
+                cart.lines.put(product.productId(), line);
+            }
+            line.quantity = current + quantity;
+            line.product = product;
+            cart.touch(line);
+            return line.view();
+        });
+    }
+
+    /** Set a line's quantity. Returns null if the line is not in this customer's cart. */
+    public CartLineView setQuantity(Long customerId, Long cartItemId, int quantity, CartProductView product) {
+        return withCart(customerId, cart -> {
+            Line line = cart.find(cartItemId);
+            if (line == null) return null;
+            line.quantity = quantity;
+            if (product != null) line.product = product;
+            cart.touch(line);
+            return line.view();
+        });
+    }
+
+    public boolean remove(Long customerId, Long cartItemId) {
+        return withCart(customerId, cart -> {
+            Line line = cart.find(cartItemId);
+            if (line == null) return false;
+            cart.lines.remove(line.productId);
+            if (line.cartItemId != null) cart.deletedItemIds.add(line.cartItemId);
+            cart.dirty = true;
+            return true;
+        });
+    }
+
+    public void clear(Long customerId) {
+        withCart(customerId, cart -> {
+            for (Line line : cart.lines.values()) {
+                if (line.cartItemId != null) cart.deletedItemIds.add(line.cartItemId);
+            }
+            cart.lines.clear();
+            cart.dirty = true;
+            return null;
+        });
+    }
+
+    /** Drop lines of archived products from every cached cart; their rows are already deleted. */
+    public void dropProducts(Set<Long> productIds) {
+        for (CartState cart : carts.values()) {
+            cart.lock.lock();
+            try {
+                cart.lines.keySet().removeIf(productIds::contains);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    // ---------------- persistence ----------------
+
+    /** Write pending changes for one customer now (used before checkout reads the cart table). */
+    public void flush(Long customerId) {
+        CartState cart = carts.get(customerId);
+        if (cart != null) flush(cart);
+    }
+
+    /** Forget a customer's cart, e.g. after checkout deleted it in the database. */
+    public void evict(Long customerId) {
+        CartState cart = carts.remove(customerId);
+        if (cart != null) {
+            cart.lock.lock();
+            try {
+                cart.evicted = true;
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = FLUSH_INTERVAL_MS)
+    public void flushAndEvict() {
+        long now = System.currentTimeMillis();
+        for (CartState cart : carts.values()) {
+            if (cart.dirty) flush(cart);
+            if (now - cart.lastAccess > IDLE_EVICT_MS) evictIfClean(cart);
+        }
+        int excess = carts.size() - MAX_CARTS;
+        if (excess > 0) {
+            List<CartState> oldest = new ArrayList<>(carts.values());
+            oldest.sort(Comparator.comparingLong(c -> c.lastAccess));
+            for (int i = 0; i < excess && i < oldest.size(); i++) {
+                flush(oldest.get(i));
+                evictIfClean(oldest.get(i));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        for (CartState cart : carts.values()) flush(cart);
+    }
+
+    private void evictIfClean(CartState cart) {
+        cart.flushLock.lock();
+        try {
+            cart.lock.lock();
+            try {
+                if (!cart.dirty && !cart.evicted) {
+                    cart.evicted = true;
+                    carts.remove(cart.customerId, cart);
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    private record PendingLine(Long productId, Long cartItemId, int quantity, int delta, BigDecimal price, long version) {}
+
+    private void flush(CartState cart) {
+        cart.flushLock.lock();
+        try {
+            Long cartId;
+            List<PendingLine> pending = new ArrayList<>();
+            List<Long> deletes;
+            boolean dropCart;
+            cart.lock.lock();
+            try {
+                if (!cart.dirty || cart.evicted) return;
+                cartId = cart.cartId;
+                for (Line line : cart.lines.values()) {
+                    if (line.cartItemId == null || line.version != line.flushedVersion) {
+                        pending.add(new PendingLine(line.productId, line.cartItemId, line.quantity,
+                            line.quantity - line.flushedQuantity, line.product.price(), line.version));
+                    }
+                }
+                deletes = new ArrayList<>(cart.deletedItemIds);
+                cart.deletedItemIds.clear();
+                dropCart = cart.lines.isEmpty() && cartId != null;
+                cart.dirty = false;
+            } finally {
+                cart.lock.unlock();
+            }
+
+            Map<Long, CartLineRef> written = new HashMap<>();
+            Long newCartId;
+            try {
+                newCartId = transactionTemplate.execute(status -> write(cart.customerId, cartId, pending, deletes, dropCart, written));
+            } catch (RuntimeException e) {
+                cart.lock.lock();
+                try {
+                    cart.deletedItemIds.addAll(deletes);
+                    cart.dirty = true;
+                } finally {
+                    cart.lock.unlock();
+                }
+                System.err.println("[CART-CACHE] Flush failed for customer " + cart.customerId + ": " + e.getMessage());
+                return;
+            }
+
+            cart.lock.lock();
+            try {
+                cart.cartId = newCartId;
+                for (PendingLine p : pending) {
+                    Line line = cart.lines.get(p.productId());
+                    CartLineRef row = written.get(p.productId());
+                    if (line != null && Objects.equals(line.cartItemId, p.cartItemId())) {
+                        line.flushedQuantity = p.quantity();
+                        if (row != null) {
+                            // The row may have merged with quantity written elsewhere; take that in too
+                            line.cartItemId = row.cartItemId();
+                            line.quantity += row.quantity() - p.quantity();
+                            line.flushedQuantity = row.quantity();
+                        }
+                        line.flushedVersion = Math.max(line.flushedVersion, p.version());
+                        if (line.version != line.flushedVersion) cart.dirty = true;
+                    } else if (row != null && (line == null || !row.cartItemId().equals(line.cartItemId))) {
+                        // Removed while we were writing it
+                        cart.deletedItemIds.add(row.cartItemId());
+                        cart.dirty = true;
+                    }
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        } finally {
+            cart.flushLock.unlock();
+        }
+    }
+
+    // Runs inside the flush transaction; returns the cart id after the write (null if dropped)
+    private Long write(Long customerId, Long cartId, List<PendingLine> pending, List<Long> deletes,
+                       boolean dropCart, Map<Long, CartLineRef> written) {
+        if (dropCart) {
+            cartItemRepository.deleteByCartId(cartId);
+            cartRepository.deleteCartById(cartId);
+            return null;
+        }
+        if (!deletes.isEmpty()) cartItemRepository.deleteAllByIdInBatch(deletes);
+        if (pending.isEmpty()) {
+            if (cartId != null) {
+                cartRepository.touch(cartId, LocalDateTime.now());
+                refreshIfLoaded(cartId);
+            }
+            return cartId;
+        }
+
+        Cart cart = null;
+        if (cartId == null) {
+            cart = cartRepository.save(new Cart(customerRepository.getReferenceById(customerId)));
+            entityManager.flush();
+            cartId = cart.getId();
+        } else {
+            cartRepository.touch(cartId, LocalDateTime.now());
+        }
+
+        Set<Long> writtenProductIds = new HashSet<>();
+        List<PendingLine> upserts = new ArrayList<>();
+        for (PendingLine p : pending) {
+            if (p.cartItemId() == null) {
+                upserts.add(p);
+            } else if (p.delta() != 0) {
+                if (cartItemRepository.addQuantity(p.cartItemId(), p.delta(), price(p)) > 0) {
+                    writtenProductIds.add(p.productId());
+                } else {
+                    // Row deleted elsewhere (another instance's checkout); write the line again
+                    upserts.add(p);
+                }
+            }
+        }
+
+        if (!upserts.isEmpty()) {
+            List<Long> productIds = new ArrayList<>();
+            for (PendingLine p : upserts) productIds.add(p.productId());
+            Set<Long> live = new HashSet<>(productRepository.findLiveIds(productIds));
+
+            for (PendingLine p : upserts) {
+                if (!live.contains(p.productId())) continue; // product archived meanwhile
+                Long id = EntityIds.next(entityManager, CartItem.class);
+                cartItemRepository.upsertQuantity(id, cartId, p.productId(), p.quantity(), price(p));
+                writtenProductIds.add(p.productId());
+            }
+        }
+        // Upserts keep the existing row's id when they merge, and any line may have taken
+        // quantity from elsewhere, so read back what the rows now hold
+        if (!writtenProductIds.isEmpty()) {
+            for (CartLineRef row : cartItemRepository.findLineRefs(cartId, writtenProductIds)) {
+                written.put(row.productId(), row);
+            }
+        }
+        // Checkout reads the cart right after flushing, in the same persistence context. A cart
+        // created here would stay there with an empty item list, and one loaded earlier in the
+        // request (with the customer) would hold the version from before this flush.
+        if (cart != null) {
+            entityManager.detach(cart);
+        } else {
+            refreshIfLoaded(cartId);
+        }
+        return cartId;
+    }
+
+    private void refreshIfLoaded(Long cartId) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Cart.class);
+        Object loaded = session.getPersistenceContextInternal().getEntity(session.generateEntityKey(cartId, persister));
+        if (loaded != null) entityManager.refresh(loaded);
+    }
+
+    // ---------------- state access ----------------
+
+    private <T> T withCart(Long customerId, Function<CartState, T> action) {
+        while (true) {
+            CartState cart = stateFor(customerId);
+            cart.lock.lock();
+            try {
+                if (cart.evicted) continue;
+                cart.lastAccess = System.currentTimeMillis();
+                return action.apply(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private CartState stateFor(Long customerId) {
+        CartState cart = carts.get(customerId);
+        if (cart != null) return cart;
+        CartState loaded = load(customerId);
+        CartState existing = carts.putIfAbsent(customerId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private CartState load(Long customerId) {
+        CartState cart = new CartState(customerId);
+        cart.cartId = cartRepository.findIdByCustomerId(customerId).orElse(null);
+        if (cart.cartId != null) {
+            for (CartLineView row : cartItemRepository.findLineViewsByCustomerId(customerId)) {
+                Line line = new Line(row.product().productId());
+                line.cartItemId = row.cartItemId();
+                line.quantity = row.quantity();
+                line.flushedQuantity = row.quantity();
+                line.product = row.product();
+                line.flushedVersion = line.version;
+                cart.lines.put(line.productId, line);
+            }
+        }
+        return cart;
+    }
+
+    // Unit price for the subtotal the line statements compute; CartItem treats a missing price as zero
+    private static BigDecimal price(PendingLine line) {
+        return line.price() != null ? line.price() : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,56 @@
+package com.lazzappe.lazzappe.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges duplicate cart lines (same cart and product, left by concurrent adds before
+ * the unique key existed) into the oldest row, summing the quantities, and then adds
+ * the unique key. The schema update can't add it while duplicates remain and skips it
+ * quietly. Runs once the schema is in place and before the app takes requests; does
+ * nothing when there are no duplicates.
+ */
+@Component
+public class CartLineMigration {
+
+    private static final String UNIQUE_KEY = "uk_cart_item_cart_product";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Injected so the schema exists before this runs
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void mergeDuplicateLines() {
+        try {
+            List<Map<String, Object>> duplicates = jdbcTemplate.queryForList(
+                "SELECT cart_id, product_id, MIN(cart_item_id) AS keep_id, SUM(quantity) AS quantity " +
+                "FROM cart_item GROUP BY cart_id, product_id HAVING COUNT(*) > 1");
+            if (duplicates.isEmpty()) return;
+
+            for (Map<String, Object> line : duplicates) {
+                Object keepId = line.get("keep_id");
+                int quantity = ((Number) line.get("quantity")).intValue();
+                jdbcTemplate.update(
+                    "UPDATE cart_item SET quantity = ?, subtotal = ? * (SELECT p.price FROM product p WHERE p.product_id = cart_item.product_id) " +
+                    "WHERE cart_item_id = ?", quantity, quantity, keepId);
+                jdbcTemplate.update(
+                    "DELETE FROM cart_item WHERE cart_id = ? AND product_id = ? AND cart_item_id <> ?",
+                    line.get("cart_id"), line.get("product_id"), keepId);
+            }
+            jdbcTemplate.execute("CREATE UNIQUE INDEX " + UNIQUE_KEY + " ON cart_item (cart_id, product_id)");
+            System.out.println("[CART-LINES] Merged " + duplicates.size() + " duplicated cart lines and added " + UNIQUE_KEY);
+        } catch (DataAccessException e) {
+            System.err.println("[CART-LINES] Could not merge duplicate cart lines: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.lazzappe.lazzappe.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout meters:
+ *   lazzappe.checkout             whole checkout, by outcome
+ *   lazzappe.checkout.phase       cart_flush, load_cart, stock_reserve, order_insert, outbox, cart_delete
+ *   lazzappe.checkout.stock.conflicts  lines refused for stock, by stage (precheck or reserve)
+ *   lazzappe.checkout.retries     transactions retried after a lock conflict, by exception
+ */
+@Component
+public class CheckoutMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public CheckoutMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Records the phase that started at startNanos and returns now, the start of the next one. */
+    public long phase(String phase, long startNanos) {
+        long now = System.nanoTime();
+        Timer.builder("lazzappe.checkout.phase")
+            .tag("phase", phase)
+            .register(meterRegistry)
+            .record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void completed(String outcome, long startNanos) {
+        Timer.builder("lazzappe.checkout")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void stockConflict(String stage) {
+        meterRegistry.counter("lazzappe.checkout.stock.conflicts", "stage", stage).increment();
+    }
+
+    public void retried(Throwable cause) {
+        meterRegistry.counter("lazzappe.checkout.retries", "exception", cause.getClass().getSimpleName()).increment();
+    }
+}
@@ -0,0 +1,22 @@
+package com.lazzappe.lazzappe.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * Ids for rows written with plain SQL, taken from the entity's own table generator so
+ * they share its pooled blocks with rows Hibernate inserts.
+ */
+public final class EntityIds {
+
+    private EntityIds() {}
+
+    /** Next id of the entity, drawn through the current session. */
+    public static Long next(EntityManager entityManager, Class<?> entityClass) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator generator = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+            .getEntityDescriptor(entityClass).getGenerator();
+        return (Long) generator.generate(session, null);
+    }
+}
@@ -0,0 +1,65 @@
+package com.lazzappe.lazzappe.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves every id_sequence row up to the highest id already in its table (the row holds
+ * the last id handed out). Tables created while
+ * ids were AUTO_INCREMENT have rows the table generator doesn't know about; without
+ * this the first pooled block would collide with them. Runs once the schema is in
+ * place and before the app takes requests; rows already ahead are left alone.
+ */
+@Component
+public class IdSequenceMigration {
+
+    // sequence_name -> table and id column, as declared in the entity @TableGenerators
+    private static final List<String[]> SEQUENCES = List.of(
+        new String[] {"user", "user", "user_id"},
+        new String[] {"customer", "customer", "customer_id"},
+        new String[] {"seller", "seller", "seller_id"},
+        new String[] {"product", "product", "product_id"},
+        new String[] {"cart", "cart", "cart_id"},
+        new String[] {"cart_item", "cart_item", "cart_item_id"},
+        new String[] {"orders", "orders", "order_id"},
+        new String[] {"order_item", "order_item", "order_item_id"},
+        new String[] {"outbox_event", "outbox_event", "outbox_event_id"}
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Injected so the schema (including id_sequence) exists before this runs
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void alignSequences() {
+        for (String[] sequence : SEQUENCES) {
+            String name = sequence[0];
+            try {
+                Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT MAX(" + sequence[2] + ") FROM " + sequence[1], Long.class);
+                long lastUsed = maxId != null ? maxId : 0;
+
+                List<Long> current = jdbcTemplate.queryForList(
+                    "SELECT next_val FROM id_sequence WHERE sequence_name = ?", Long.class, name);
+                if (current.isEmpty()) {
+                    jdbcTemplate.update("INSERT INTO id_sequence (sequence_name, next_val) VALUES (?, ?)", name, lastUsed);
+                } else if (current.get(0) < lastUsed) {
+                    jdbcTemplate.update(
+                        "UPDATE id_sequence SET next_val = ? WHERE sequence_name = ? AND next_val < ?", lastUsed, name, lastUsed);
+                    System.out.println("[ID-SEQUENCE] Moved " + name + " ids past " + lastUsed);
+                }
+            } catch (DataAccessException e) {
+                System.err.println("[ID-SEQUENCE] Could not align " + name + ": " + e.getMessage());
+            }
+        }
+    }
+}
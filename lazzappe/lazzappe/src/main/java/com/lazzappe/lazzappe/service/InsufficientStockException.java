@@ -0,0 +1,21 @@
+package com.lazzappe.lazzappe.service;
+
+/**
+ * Thrown when a conditional stock decrement matches no row, i.e. another checkout
+ * got there first. Rolls back the surrounding checkout transaction.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long productId;
+    private final int requested;
+
+    public InsufficientStockException(Long productId, int requested) {
+        super("Insufficient stock for product " + productId);
+        this.productId = productId;
+        this.requested = requested;
+    }
+
+    public Long getProductId() { return productId; }
+
+    public int getRequested() { return requested; }
+}
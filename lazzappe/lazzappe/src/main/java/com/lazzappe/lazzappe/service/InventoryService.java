@@ -0,0 +1,110 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Stock reservation for checkout.
+ *
+ * Stock is only ever taken with a conditional UPDATE (stock >= qty), so two checkouts
+ * can never both win the last unit. Rows are locked in ascending product_id order so
+ * concurrent multi-line carts cannot deadlock each other; if the database still reports
+ * a lock conflict the whole checkout transaction is retried with jittered backoff.
+ */
+@Service
+public class InventoryService {
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MS = 10;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CheckoutMetrics checkoutMetrics;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public InventoryService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Decrement stock for every product in the map (product id -> quantity) inside the
+     * caller's transaction. Throws InsufficientStockException on the first product that
+     * cannot cover its quantity, which rolls back everything reserved so far. sellerKeys
+     * are the products' seller and seller user ids, taken from the rows the caller loaded.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<Long, Integer> quantities, Collection<Long> sellerKeys) {
+        // TreeMap gives the deterministic lock order
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            int updated = productRepository.decrementStock(line.getKey(), line.getValue());
+            if (updated == 0) {
+                checkoutMetrics.stockConflict("reserve");
+                throw new InsufficientStockException(line.getKey(), line.getValue());
+            }
+        }
+
+        // Product lists show stock too; their versions move on commit
+        resourceVersions.productsChanged(sellerKeys.toArray(new Long[0]));
+
+        // Cached products and search results show stock; update them only once the order is really placed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productCache.invalidateAll(quantities.keySet());
+                productSearchIndex.stockTaken(quantities);
+            }
+        });
+    }
+
+    /**
+     * Run work in its own transaction, retrying on deadlocks, lock timeouts and optimistic
+     * lock failures. Business failures such as InsufficientStockException are not retried.
+     */
+    public <T> T inTransactionWithRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) throw e;
+                checkoutMetrics.retried(e);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = BASE_BACKOFF_MS << (attempt - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying checkout", e);
+        }
+    }
+}
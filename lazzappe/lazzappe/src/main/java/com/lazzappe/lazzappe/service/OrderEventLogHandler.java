@@ -0,0 +1,23 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.entity.OutboxEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes a line per order event to the application log. Mostly useful to see the
+ * outbox flowing; real side effects (emails, analytics, webhooks) register their own
+ * handlers next to this one.
+ */
+@Component
+public class OrderEventLogHandler implements OutboxHandler {
+
+    @Override
+    public boolean handles(String eventType) {
+        return OutboxService.ORDER_PLACED.equals(eventType) || OutboxService.ORDER_STATUS_CHANGED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        System.out.println("[ORDER-EVENT] " + event.getEventType() + " order " + event.getAggregateId() + " " + event.getPayload());
+    }
+}
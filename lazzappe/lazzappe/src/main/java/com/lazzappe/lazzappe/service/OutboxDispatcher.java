@@ -0,0 +1,151 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.entity.OutboxEvent;
+import com.lazzappe.lazzappe.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the outbox to the registered OutboxHandlers.
+ *
+ * Each poll claims up to one batch of due events in a short transaction (taking a
+ * lease by pushing next_attempt_at out), runs them on a bounded pool, then records the
+ * outcome in a second transaction. A claim only takes the earliest undelivered event of
+ * each aggregate, so an order's events stay in sequence across batches and dispatchers;
+ * the next one becomes due when its predecessor is recorded as delivered, and polling
+ * carries on until nothing is due. Failures back off exponentially and give up as
+ * FAILED after MAX_ATTEMPTS. Delivered rows are purged after a week.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long LEASE_SECONDS = 300;
+    private static final long BASE_BACKOFF_SECONDS = 5;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+    private static final int RETENTION_DAYS = 7;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired(required = false)
+    private List<OutboxHandler> handlers = List.of();
+
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+
+    // error is null when the event was delivered
+    private record Result(String error) {}
+
+    public OutboxDispatcher(PlatformTransactionManager transactionManager,
+                            @Value("${lazzappe.outbox.batch-size:100}") int batchSize,
+                            @Value("${lazzappe.outbox.threads:4}") int threads) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(batchSize),
+            r -> {
+                Thread t = new Thread(r, "outbox-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Scheduled(fixedDelayString = "${lazzappe.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        List<OutboxEvent> batch;
+        while (!(batch = claim()).isEmpty()) {
+            record(deliver(batch));
+        }
+    }
+
+    @Scheduled(fixedDelay = 60 * 60 * 1000L)
+    public void purgeDelivered() {
+        transactionTemplate.executeWithoutResult(status ->
+            outboxEventRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(RETENTION_DAYS)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> due = outboxEventRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+            for (OutboxEvent event : due) {
+                event.setAttempts(event.getAttempts() + 1);
+                event.setNextAttemptAt(now.plusSeconds(LEASE_SECONDS));
+            }
+            return due;
+        });
+    }
+
+    // A batch holds at most one event per aggregate, so every event can run on its own
+    private Map<Long, Result> deliver(List<OutboxEvent> batch) {
+        Map<Long, Result> results = new ConcurrentHashMap<>();
+        List<Future<?>> tasks = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            tasks.add(executor.submit(() -> {
+                try {
+                    for (OutboxHandler handler : handlers) {
+                        if (handler.handles(event.getEventType())) handler.handle(event);
+                    }
+                    results.put(event.getId(), new Result(null));
+                } catch (Exception e) {
+                    results.put(event.getId(), new Result(String.valueOf(e.getMessage())));
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // Handler exceptions are caught per event; anything else leaves the lease to expire
+            }
+        }
+        return results;
+    }
+
+    private void record(Map<Long, Result> results) {
+        if (results.isEmpty()) return;
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (OutboxEvent event : outboxEventRepository.findAllById(results.keySet())) {
+                String error = results.get(event.getId()).error();
+                if (error == null) {
+                    event.setStatus("DONE");
+                    event.setProcessedAt(now);
+                    event.setLastError(null);
+                    continue;
+                }
+                event.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+                if (event.getAttempts() >= MAX_ATTEMPTS) {
+                    event.setStatus("FAILED");
+                    System.err.println("[OUTBOX] Giving up on event " + event.getId() + " (" + event.getEventType() + "): " + error);
+                } else {
+                    long backoff = Math.min(MAX_BACKOFF_SECONDS, BASE_BACKOFF_SECONDS << (event.getAttempts() - 1));
+                    event.setNextAttemptAt(now.plusSeconds(backoff));
+                }
+            }
+        });
+    }
+}
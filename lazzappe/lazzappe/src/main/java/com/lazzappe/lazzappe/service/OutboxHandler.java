@@ -0,0 +1,17 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.entity.OutboxEvent;
+
+/**
+ * Receives outbox events from OutboxDispatcher. Any Spring bean implementing this is
+ * picked up. Delivery is at least once: an event is retried with backoff until every
+ * interested handler succeeds, so handlers must tolerate seeing an event again.
+ * Events of one aggregate are handed over in the order they were written; one that is
+ * given up on holds back the rest of its aggregate until it is dealt with by hand.
+ */
+public interface OutboxHandler {
+
+    boolean handles(String eventType);
+
+    void handle(OutboxEvent event) throws Exception;
+}
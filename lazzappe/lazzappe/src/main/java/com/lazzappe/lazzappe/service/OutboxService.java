@@ -0,0 +1,40 @@
+package com.lazzappe.lazzappe.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.entity.OutboxEvent;
+import com.lazzappe.lazzappe.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Writes outbox events. Must be called inside the transaction making the change, so
+ * the event is stored if and only if the change commits.
+ */
+@Service
+public class OutboxService {
+
+    public static final String ORDER = "order";
+    public static final String ORDER_PLACED = "ORDER_PLACED";
+    public static final String ORDER_STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, Long aggregateId, String eventType, Map<String, Object> payload) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(aggregateType, aggregateId, eventType,
+                objectMapper.writeValueAsString(payload)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.lazzappe.lazzappe.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Moves photos still stored as base64 data URIs in the legacy user.profile_photo column
+ * into the photo store, one row at a time, and clears the column. Safe to run on every
+ * startup: migrated rows no longer match, and databases created without the legacy
+ * column are skipped.
+ */
+@Component
+public class PhotoMigration implements ApplicationRunner {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Long> userIds;
+        try {
+            userIds = jdbcTemplate.queryForList(
+                "SELECT user_id FROM user WHERE profile_photo LIKE 'data:%'", Long.class);
+        } catch (DataAccessException e) {
+            return; // no legacy column
+        }
+
+        int migrated = 0;
+        for (Long userId : userIds) {
+            try {
+                String dataUri = jdbcTemplate.queryForObject(
+                    "SELECT profile_photo FROM user WHERE user_id = ?", String.class, userId);
+                if (dataUri == null || !dataUri.startsWith("data:")) continue;
+
+                int comma = dataUri.indexOf(',');
+                int semicolon = dataUri.indexOf(';');
+                if (comma < 0 || semicolon < 0 || semicolon > comma) continue;
+                // The declared type isn't trusted; the store reads the format from the bytes
+                byte[] bytes = Base64.getDecoder().decode(dataUri.substring(comma + 1));
+                String ref = photoStorageService.store(new ByteArrayInputStream(bytes));
+                jdbcTemplate.update(
+                    "UPDATE user SET profile_photo_ref = ?, profile_photo = NULL WHERE user_id = ?", ref, userId);
+                migrated++;
+            } catch (Exception e) {
+                System.err.println("[PHOTO-MIGRATION] Failed for user " + userId + ": " + e.getMessage());
+            }
+        }
+        if (migrated > 0) {
+            System.out.println("[PHOTO-MIGRATION] Moved " + migrated + " profile photos to the photo store");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.lazzappe.lazzappe.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Profile photos on the local filesystem, addressed by the SHA-256 of their bytes.
+ *
+ * A reference looks like "&lt;sha256&gt;.&lt;ext&gt;" and is all the user row keeps. Files are
+ * sharded by the first two hex digits and never change once written, so identical
+ * uploads are stored once and the hash doubles as a strong ETag.
+ *
+ * The format is read from the file's leading bytes, never from the Content-Type the
+ * client sent, and an image that can't be stored whole (thumbnail included) leaves
+ * nothing behind.
+ */
+@Service
+public class PhotoStorageService {
+
+    public static final int THUMBNAIL_SIZE = 128;
+
+    private static final Pattern REF_PATTERN = Pattern.compile("^[0-9a-f]{64}\\.(jpg|png|gif|webp)$");
+
+    // Longest signature we look at (webp: "RIFF" size "WEBP")
+    private static final int SNIFF_BYTES = 12;
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+        "jpg", "image/jpeg",
+        "png", "image/png",
+        "gif", "image/gif",
+        "webp", "image/webp"
+    );
+
+    private final Path baseDir;
+
+    public PhotoStorageService(@Value("${lazzappe.photos.dir:uploads/photos}") String baseDir) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+    }
+
+    public boolean isValidRef(String ref) {
+        return ref != null && REF_PATTERN.matcher(ref).matches();
+    }
+
+    public String contentTypeOf(String ref) {
+        return CONTENT_TYPES.get(ref.substring(ref.lastIndexOf('.') + 1));
+    }
+
+    /** Hash of the stored bytes, used as the ETag. */
+    public String hashOf(String ref) {
+        return ref.substring(0, ref.indexOf('.'));
+    }
+
+    /**
+     * Stream the upload to disk while hashing it, then move it into place under its hash.
+     * Returns the reference to keep on the user row. Throws IllegalArgumentException when
+     * the bytes are not a jpeg, png, gif or webp image, or one that can't be decoded.
+     */
+    public String store(InputStream upload) throws IOException {
+        InputStream in = new BufferedInputStream(upload);
+        in.mark(SNIFF_BYTES);
+        String ext = sniffExtension(in.readNBytes(SNIFF_BYTES));
+        in.reset();
+        if (ext == null) throw new IllegalArgumentException("Unsupported image type");
+
+        Files.createDirectories(baseDir);
+        Path tmp = Files.createTempFile(baseDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (DigestInputStream din = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                din.transferTo(out);
+            }
+            String ref = HexFormat.of().formatHex(digest.digest()) + "." + ext;
+            Path target = pathOf(ref);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                storeThumbnail(ref);
+            }
+            return ref;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Original file for a reference, or null if it is not stored. */
+    public Path resolve(String ref) {
+        if (!isValidRef(ref)) return null;
+        Path path = pathOf(ref);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * Thumbnail for a reference, generated on first use for photos stored before thumbnails
+     * existed. Falls back to the original for formats ImageIO can't decode (e.g. webp).
+     */
+    public Path resolveThumbnail(String ref) throws IOException {
+        Path original = resolve(ref);
+        if (original == null) return null;
+        Path thumb = thumbnailPathOf(ref);
+        if (Files.isRegularFile(thumb)) return thumb;
+        return createThumbnail(ref) ? thumb : original;
+    }
+
+    /** Content type of a resolved file (thumbnails of gifs are written as png). */
+    public String contentTypeOf(String ref, Path file) {
+        return file.getFileName().toString().endsWith(".thumb.png") ? "image/png" : contentTypeOf(ref);
+    }
+
+    // An original whose thumbnail can't be made is removed again rather than left orphaned.
+    // Webp is the exception: ImageIO can't decode it, so it is served as its own thumbnail.
+    private void storeThumbnail(String ref) throws IOException {
+        boolean created;
+        try {
+            created = createThumbnail(ref);
+        } catch (IIOException e) {
+            discard(ref);
+            throw new IllegalArgumentException("Image could not be decoded");
+        } catch (IOException | RuntimeException e) {
+            discard(ref);
+            throw e;
+        }
+        if (!created && !ref.endsWith(".webp")) {
+            discard(ref);
+            throw new IllegalArgumentException("Image could not be decoded");
+        }
+    }
+
+    private void discard(String ref) throws IOException {
+        Files.deleteIfExists(thumbnailPathOf(ref));
+        Files.deleteIfExists(pathOf(ref));
+    }
+
+    // File extension from the format's signature, or null when it isn't a supported image
+    static String sniffExtension(byte[] head) {
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) return "jpg";
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return "png";
+        if (startsWith(head, 0, 'G', 'I', 'F', '8') && head.length >= 6 && (head[4] == '7' || head[4] == '9') && head[5] == 'a') {
+            return "gif";
+        }
+        if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) return "webp";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int offset, int... signature) {
+        if (head.length < offset + signature.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[offset + i] & 0xFF) != signature[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean createThumbnail(String ref) throws IOException {
+        BufferedImage source = ImageIO.read(pathOf(ref).toFile());
+        if (source == null) return false;
+
+        double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        boolean jpeg = ref.endsWith(".jpg");
+
+        BufferedImage thumb = new BufferedImage(width, height, jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = thumb.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        Path target = thumbnailPathOf(ref);
+        Path tmp = Files.createTempFile(target.getParent(), "thumb-", ".tmp");
+        try {
+            if (!ImageIO.write(thumb, jpeg ? "jpg" : "png", tmp.toFile())) return false;
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path pathOf(String ref) {
+        return baseDir.resolve(ref.substring(0, 2)).resolve(ref);
+    }
+
+    private Path thumbnailPathOf(String ref) {
+        String hash = hashOf(ref);
+        return baseDir.resolve(ref.substring(0, 2)).resolve(hash + ".thumb." + (ref.endsWith(".jpg") ? "jpg" : "png"));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.dto.ProductView;
+import com.lazzappe.lazzappe.repository.CartItemRepository;
+import com.lazzappe.lazzappe.repository.ProductRepository;
+import com.lazzappe.lazzappe.repository.SellerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Archiving (soft delete) and removal of products, all set-based.
+ *
+ * Archiving stamps deleted_at, which hides the product from every listing, cache and
+ * cart, while orders that sold it keep pointing at the row. Removing a seller's whole
+ * range is three statements however many products it holds: stamp them, delete their
+ * cart lines, read back the ids for the in-memory caches. Purging hard-deletes archived
+ * products that no order refers to. Nothing is loaded as an entity.
+ */
+@Service
+public class ProductArchiveService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CartCache cartCache;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    /** Archive one product; false if there is no live product with that id. */
+    @Transactional
+    public boolean archive(Long productId) {
+        ProductView product = productCache.get(productId);
+        if (productRepository.archive(productId, now()) == 0) return false;
+        cartItemRepository.deleteByProductId(productId);
+        if (product != null) resourceVersions.productsChanged(product.sellerId(), product.sellerUserId());
+        afterCommit(Set.of(productId));
+        return true;
+    }
+
+    /** Archive every live product of a seller; returns how many were archived. */
+    @Transactional
+    public int archiveBySeller(Long sellerId) {
+        LocalDateTime archivedAt = now();
+        int archived = productRepository.archiveBySeller(sellerId, archivedAt);
+        if (archived == 0) return 0;
+        cartItemRepository.deleteArchivedBySeller(sellerId);
+        afterCommit(new HashSet<>(productRepository.findIdsArchivedAt(sellerId, archivedAt)));
+        Long sellerUserId = sellerRepository.findById(sellerId)
+            .map(seller -> seller.getUser() != null ? seller.getUser().getUser_id() : null).orElse(null);
+        resourceVersions.productsChanged(sellerId, sellerUserId);
+        return archived;
+    }
+
+    /** Delete a seller's archived products that no order refers to; returns how many. */
+    @Transactional
+    public int purgeArchived(Long sellerId) {
+        // Lines added in a race with the archive would block the delete
+        cartItemRepository.deleteArchivedBySeller(sellerId);
+        return productRepository.purgeArchivedBySeller(sellerId);
+    }
+
+    // Column precision; the seller archive reads its rows back by this exact value
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    // Caches and carts only forget the products once the archive is really committed
+    private void afterCommit(Set<Long> productIds) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productCache.invalidateAll(productIds);
+                productSearchIndex.removeAll(productIds);
+                cartCache.dropProducts(productIds);
+            }
+        });
+    }
+}
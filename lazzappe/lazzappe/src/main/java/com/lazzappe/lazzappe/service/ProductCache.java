@@ -0,0 +1,82 @@
+package com.lazzappe.lazzappe.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.lazzappe.lazzappe.config.ReplicaRoutingDataSource;
+import com.lazzappe.lazzappe.dto.ProductView;
+import com.lazzappe.lazzappe.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-through cache of single products for detail reads and cart stock checks.
+ *
+ * Holds ProductView records, which are immutable and already carry the seller and
+ * seller user ids, so nothing here can be lazily loaded or mutated by a caller.
+ * Entries are dropped when the product is updated or deleted and after a checkout
+ * takes stock; the TTL only bounds staleness from writes made outside this app.
+ * Misses load from the primary, as a replica's older row would be served to everyone.
+ * Hit, miss, load and eviction counts are published as the cache.* meters (cache=product).
+ */
+@Service
+public class ProductCache implements MeterBinder {
+
+    private final ProductRepository productRepository;
+    private final Cache<Long, ProductView> cache;
+
+    public ProductCache(ProductRepository productRepository,
+                        @Value("${lazzappe.product-cache.max-size:10000}") long maxSize,
+                        @Value("${lazzappe.product-cache.ttl:10m}") Duration ttl) {
+        this.productRepository = productRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    }
+
+    /** Product by id, loaded with one projection query on a miss. Null if it doesn't exist. */
+    public ProductView get(Long productId) {
+        return cache.get(productId, id ->
+            ReplicaRoutingDataSource.onPrimary(() -> productRepository.findViewById(id).orElse(null)));
+    }
+
+    public void put(ProductView product) {
+        cache.put(product.productId(), product);
+    }
+
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+    }
+
+    public void invalidateAll(Collection<Long> productIds) {
+        cache.invalidateAll(productIds);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "product");
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("size", cache.estimatedSize());
+        out.put("hits", stats.hitCount());
+        out.put("misses", stats.missCount());
+        out.put("hit_rate", stats.hitRate());
+        out.put("evictions", stats.evictionCount());
+        out.put("load_failures", stats.loadFailureCount());
+        out.put("average_load_ms", stats.averageLoadPenalty() / 1_000_000.0);
+        return out;
+    }
+}
@@ -0,0 +1,108 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.dto.ProductView;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV format of the bulk product import and export (RFC 4180: comma separated, fields
+ * with commas, quotes or line breaks are quoted, quotes doubled). The export's columns
+ * are accepted by the import, which ignores product_id and created_at.
+ *
+ * Text starting with = + - @ (or a tab or carriage return) would be run as a formula
+ * by a spreadsheet opening the export, so it is written with a leading apostrophe;
+ * the import takes that apostrophe off again.
+ */
+public final class ProductCsv {
+
+    public static final String HEADER = "product_id,name,description,price,stock,image_url,category,created_at";
+
+    private ProductCsv() {}
+
+    public static String row(ProductView p) {
+        return p.productId() + "," + escape(p.name()) + "," + escape(p.description()) + "," + p.price().toPlainString()
+            + "," + p.stock() + "," + escape(p.imageUrl()) + "," + escape(p.category()) + ","
+            + (p.createdAt() != null ? p.createdAt() : "");
+    }
+
+    static String escape(String value) {
+        if (value == null) return "";
+        // Text that already looks guarded gets a second apostrophe so the import keeps one
+        if (isFormula(value, 0) || !unguard(value).equals(value)) value = "'" + value;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /** An imported field with the apostrophe escape() puts before formula text removed. */
+    public static String unguard(String value) {
+        int at = 0;
+        while (at < value.length() && value.charAt(at) == '\'') at++;
+        return at > 0 && isFormula(value, at) ? value.substring(1) : value;
+    }
+
+    private static boolean isFormula(String value, int at) {
+        return value.length() > at && "=+-@\t\r".indexOf(value.charAt(at)) >= 0;
+    }
+
+    /**
+     * Reads one record at a time from a character stream, so an upload is never held
+     * in memory. Quoted fields may span lines; line() is where the last record started.
+     */
+    public static class RecordReader {
+        private final Reader in;
+        private int line = 1;
+        private int recordLine;
+
+        // Expects a buffered reader; fields are read a character at a time
+        public RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        public int line() {
+            return recordLine;
+        }
+
+        /** Next record's fields, or null at the end of input. Blank lines come back as one empty field. */
+        public List<String> next() throws IOException {
+            int c = in.read();
+            if (c == -1) return null;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    } else if (c == '"') {
+                        c = in.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    if (c == '\n') line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+    }
+}
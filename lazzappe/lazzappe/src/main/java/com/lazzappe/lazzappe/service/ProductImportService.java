@@ -0,0 +1,279 @@
+package com.lazzappe.lazzappe.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.dto.ProductView;
+import com.lazzappe.lazzappe.entity.Product;
+import com.lazzappe.lazzappe.entity.Seller;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Bulk product import for one seller, from CSV or NDJSON (one JSON object per line).
+ *
+ * The upload is parsed as it arrives and never held whole: rows are validated one by
+ * one and collected into batches of lazzappe.import.batch-size (500), each inserted
+ * with a single JDBC batch in its own transaction, ids taken from Product's pooled
+ * table generator. Bad rows are reported by line and skipped; a batch the database
+ * refuses is retried row by row so only the offending rows fail. Fields are the
+ * createProduct ones: name, price and stock required, description, image_url and
+ * category optional, anything else ignored.
+ *
+ * Batches already inserted stay when the upload breaks off part way: the rows read
+ * up to that point are still imported and the result comes back with complete false
+ * and the line reading stopped at, so the client can resend from there.
+ */
+@Service
+public class ProductImportService {
+
+    // Rows reported individually; the failed count covers every one
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("100000000"); // DECIMAL(10,2)
+
+    private static final String INSERT =
+        "INSERT INTO product (product_id, name, description, price, stock, image_url, category, created_at, seller_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${lazzappe.import.batch-size:500}")
+    private int batchSize;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public record RowError(int line, String error) {}
+
+    public record ImportResult(int imported, int failed, List<RowError> errors, boolean complete) {}
+
+    private record Row(int line, String name, String description, BigDecimal price, int stock,
+                       String imageUrl, String category) {}
+
+    /** Import a CSV upload whose first record names the columns. */
+    public ImportResult importCsv(Seller seller, Reader reader) throws IOException {
+        ProductCsv.RecordReader records = new ProductCsv.RecordReader(new BufferedReader(reader));
+        List<String> header = records.next();
+        if (header == null) throw new IllegalArgumentException("CSV header row is missing");
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("name", "price", "stock")) {
+            if (!columns.containsKey(required)) throw new IllegalArgumentException("CSV header must include " + required);
+        }
+
+        Importer importer = new Importer(seller);
+        while (true) {
+            List<String> record;
+            try {
+                record = records.next();
+            } catch (IllegalArgumentException e) {
+                importer.reject(records.line(), e.getMessage());
+                break;
+            } catch (IOException e) {
+                return importer.interrupted(records.line(), e);
+            }
+            if (record == null) break;
+            if (record.size() == 1 && record.get(0).isBlank()) continue;
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, Integer> column : columns.entrySet()) {
+                if (column.getValue() < record.size()) {
+                    fields.put(column.getKey(), ProductCsv.unguard(record.get(column.getValue())));
+                }
+            }
+            importer.add(records.line(), fields);
+        }
+        return importer.finish();
+    }
+
+    /** Import an NDJSON upload, one product object per line. */
+    public ImportResult importNdjson(Seller seller, Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        Importer importer = new Importer(seller);
+        int lineNumber = 0;
+        while (true) {
+            String line;
+            try {
+                line = lines.readLine();
+            } catch (IOException e) {
+                return importer.interrupted(lineNumber + 1, e);
+            }
+            if (line == null) break;
+            lineNumber++;
+            if (line.isBlank()) continue;
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                importer.reject(lineNumber, "invalid JSON");
+                continue;
+            }
+            if (!node.isObject()) {
+                importer.reject(lineNumber, "expected a JSON object");
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                if (!field.getValue().isNull()) fields.put(field.getKey(), field.getValue().asText());
+            }
+            importer.add(lineNumber, fields);
+        }
+        return importer.finish();
+    }
+
+    // One upload: validation, batching and the running result
+    private class Importer {
+        private final Seller seller;
+        private final Long sellerUserId;
+        private final List<Row> batch = new ArrayList<>();
+        private final List<RowError> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+
+        Importer(Seller seller) {
+            this.seller = seller;
+            this.sellerUserId = seller.getUser() != null ? seller.getUser().getUser_id() : null;
+        }
+
+        void add(int line, Map<String, String> fields) {
+            try {
+                batch.add(validate(line, fields));
+            } catch (IllegalArgumentException e) {
+                reject(line, e.getMessage());
+                return;
+            }
+            if (batch.size() >= batchSize) flush();
+        }
+
+        void reject(int line, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) errors.add(new RowError(line, error));
+        }
+
+        ImportResult finish() {
+            flush();
+            return new ImportResult(imported, failed, errors, true);
+        }
+
+        // The upload broke off at line: keep what was read before it, report where it stopped
+        ImportResult interrupted(int line, IOException cause) {
+            System.err.println("[IMPORT] Upload for seller " + seller.getId() + " broke off at line " + line + ": " + cause);
+            flush();
+            errors.add(new RowError(line, "upload interrupted: " + cause.getMessage()));
+            return new ImportResult(imported, failed, errors, false);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) return;
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                List<ProductView> views = transactionTemplate.execute(status -> insert(batch, now));
+                indexAll(views);
+            } catch (DataAccessException e) {
+                // Find the rows the database refuses, keep the rest
+                for (Row row : batch) {
+                    try {
+                        indexAll(transactionTemplate.execute(status -> insert(List.of(row), now)));
+                    } catch (DataAccessException rowFailure) {
+                        reject(row.line(), "rejected by the database: " + rowFailure.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            batch.clear();
+        }
+
+        private List<ProductView> insert(List<Row> rows, LocalDateTime now) {
+            List<ProductView> views = new ArrayList<>(rows.size());
+            List<Object[]> args = new ArrayList<>(rows.size());
+            for (Row r : rows) {
+                Long id = EntityIds.next(entityManager, Product.class);
+                args.add(new Object[] {id, r.name(), r.description(), r.price(), r.stock(), r.imageUrl(), r.category(),
+                    Timestamp.valueOf(now), seller.getId()});
+                views.add(new ProductView(id, r.name(), r.description(), r.price(), r.stock(), r.imageUrl(), r.category(),
+                    seller.getId(), sellerUserId, now));
+            }
+            jdbcTemplate.batchUpdate(INSERT, args);
+            return views;
+        }
+
+        private void indexAll(List<ProductView> views) {
+            for (ProductView view : views) productSearchIndex.index(view);
+            resourceVersions.productsChanged(seller.getId(), sellerUserId);
+            imported += views.size();
+        }
+    }
+
+    private static Row validate(int line, Map<String, String> fields) {
+        String name = text(fields, "name", 255);
+        if (name == null) throw new IllegalArgumentException("name is required");
+        String description = text(fields, "description", 2000);
+
+        String priceText = text(fields, "price", 255);
+        if (priceText == null) throw new IllegalArgumentException("price is required");
+        BigDecimal price;
+        try {
+            price = new BigDecimal(priceText).setScale(2, RoundingMode.UNNECESSARY);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("price must be a number with at most 2 decimals");
+        }
+        if (price.signum() < 0 || price.compareTo(MAX_PRICE) >= 0) {
+            throw new IllegalArgumentException("price must be between 0 and 99999999.99");
+        }
+
+        String stockText = text(fields, "stock", 255);
+        if (stockText == null) throw new IllegalArgumentException("stock is required");
+        int stock;
+        try {
+            stock = Integer.parseInt(stockText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("stock must be a whole number");
+        }
+        if (stock < 0) throw new IllegalArgumentException("stock must not be negative");
+
+        return new Row(line, name, description != null ? description : "", price, stock,
+            text(fields, "image_url", 255), text(fields, "category", 255));
+    }
+
+    // Trimmed value, null when missing or blank
+    private static String text(Map<String, String> fields, String field, int maxLength) {
+        String value = fields.get(field);
+        if (value == null || value.isBlank()) return null;
+        value = value.trim();
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+        return value;
+    }
+}
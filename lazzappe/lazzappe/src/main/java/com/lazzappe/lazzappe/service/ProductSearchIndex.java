@@ -0,0 +1,401 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.dto.ProductView;
+import com.lazzappe.lazzappe.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over product name, category and description.
+ *
+ * Built once at startup from the product table and then kept current by the product
+ * write paths, so searches never touch the database. Ranking is BM25 over a weighted
+ * term frequency (name counts 3x, category 2x, description 1x). A query term also
+ * matches indexed terms it is a prefix of, and terms one edit away (insert, delete,
+ * substitute or swap two letters), both at a lower weight than an exact match. Typo
+ * candidates come from a one-deletion neighbourhood map instead of scanning the
+ * dictionary.
+ *
+ * The startup build fills a separate index and swaps it in when done. Products written
+ * meanwhile are noted; the build reads them again before the swap, so a row it streamed
+ * before the write can't overwrite the write.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final float PREFIX_FACTOR = 0.7f;
+    private static final float FUZZY_FACTOR = 0.5f;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int MAX_CATCH_UP_ROUNDS = 5;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate primaryTransaction;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Index current = new Index();
+    // Products written while a build runs; null when none is running
+    private Set<Long> writtenDuringBuild;
+
+    // weights: term -> weighted term frequency
+    private record Doc(ProductView view, float length, Map<String, Float> weights) {
+        static Doc of(ProductView product) {
+            Map<String, Float> weighted = new HashMap<>();
+            float length = addTokens(weighted, product.name(), NAME_WEIGHT)
+                + addTokens(weighted, product.category(), CATEGORY_WEIGHT)
+                + addTokens(weighted, product.description(), DESCRIPTION_WEIGHT);
+            return new Doc(product, length, weighted);
+        }
+
+        Set<String> terms() {
+            return weights.keySet();
+        }
+    }
+
+    public record SearchResult(int total, List<ProductView> items, Map<String, Integer> categoryCounts) {}
+
+    public ProductSearchIndex(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Catch-up reads must see the writes that were just committed, so no replica
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // Off the startup thread; searches see the products written so far until it finishes
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringBuild != null) return; // one build at a time
+            writtenDuringBuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index built = new Index();
+        int count;
+        try {
+            count = readOnlyTransaction.execute(status -> {
+                int n = 0;
+                try (Stream<ProductView> products = productRepository.streamAllViews()) {
+                    for (Iterator<ProductView> it = products.iterator(); it.hasNext(); n++) {
+                        built.add(it.next());
+                    }
+                }
+                return n;
+            });
+            catchUp(built);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                writtenDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        System.out.println("[SEARCH] Indexed " + count + " products in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Re-read the products written during the build until a round comes back quiet, then
+    // swap. Anything still written after the last round is taken from the live index.
+    private void catchUp(Index built) {
+        for (int round = 0; ; round++) {
+            Set<Long> written;
+            lock.writeLock().lock();
+            try {
+                written = writtenDuringBuild;
+                writtenDuringBuild = new HashSet<>();
+                if (written.isEmpty() || round == MAX_CATCH_UP_ROUNDS) {
+                    for (Long productId : written) {
+                        built.remove(productId);
+                        Doc live = current.docs.get(productId);
+                        if (live != null) built.add(live);
+                    }
+                    current = built;
+                    writtenDuringBuild = null;
+                    return;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            List<ProductView> views = primaryTransaction.execute(status -> productRepository.findViewsByIds(written));
+            for (Long productId : written) built.remove(productId);
+            for (ProductView view : views) built.add(view);
+        }
+    }
+
+    // ---------------- writes ----------------
+
+    public void index(ProductView product) {
+        Doc doc = Doc.of(product);
+        lock.writeLock().lock();
+        try {
+            current.remove(product.productId());
+            current.add(doc);
+            written(product.productId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            current.remove(productId);
+            written(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<Long> productIds) {
+        lock.writeLock().lock();
+        try {
+            for (Long productId : productIds) {
+                current.remove(productId);
+                written(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Reflect stock taken by a committed checkout in the stored views. */
+    public void stockTaken(Map<Long, Integer> quantities) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+                written(line.getKey());
+                Doc doc = current.docs.get(line.getKey());
+                if (doc == null) continue;
+                ProductView v = doc.view();
+                int stock = v.stock() != null ? Math.max(0, v.stock() - line.getValue()) : 0;
+                ProductView updated = new ProductView(v.productId(), v.name(), v.description(), v.price(), stock,
+                    v.imageUrl(), v.category(), v.sellerId(), v.sellerUserId(), v.createdAt());
+                current.docs.put(line.getKey(), new Doc(updated, doc.length(), doc.weights()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void written(Long productId) {
+        if (writtenDuringBuild != null) writtenDuringBuild.add(productId);
+    }
+
+    // ---------------- search ----------------
+
+    /**
+     * Ranked search. Category facet counts cover every match within the price range,
+     * ignoring the category filter, so a client can show the other categories too.
+     * A blank query matches everything, newest first.
+     */
+    public SearchResult search(String query, String category, BigDecimal minPrice, BigDecimal maxPrice,
+                               int offset, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+
+        lock.readLock().lock();
+        try {
+            Index index = current;
+            Map<Long, Double> scores = queryTerms.isEmpty() ? null : index.score(queryTerms);
+            Collection<Long> candidates = scores == null ? index.docs.keySet() : scores.keySet();
+
+            Map<String, Integer> categoryCounts = new TreeMap<>();
+            List<Doc> matches = new ArrayList<>();
+            for (Long id : candidates) {
+                Doc doc = index.docs.get(id);
+                ProductView v = doc.view();
+                if (minPrice != null && (v.price() == null || v.price().compareTo(minPrice) < 0)) continue;
+                if (maxPrice != null && (v.price() == null || v.price().compareTo(maxPrice) > 0)) continue;
+                if (v.category() != null) categoryCounts.merge(v.category(), 1, Integer::sum);
+                if (category != null && !category.equalsIgnoreCase(v.category())) continue;
+                matches.add(doc);
+            }
+
+            Comparator<Doc> order = scores == null
+                ? Comparator.comparing((Doc d) -> d.view().createdAt(), Comparator.nullsLast(Comparator.reverseOrder()))
+                : Comparator.comparingDouble((Doc d) -> -scores.get(d.view().productId()));
+            matches.sort(order.thenComparing(d -> d.view().productId(), Comparator.reverseOrder()));
+
+            List<ProductView> page = new ArrayList<>();
+            for (int i = offset; i < matches.size() && i < offset + limit; i++) page.add(matches.get(i).view());
+            return new SearchResult(matches.size(), page, categoryCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------- structure ----------------
+
+    private static final class Index {
+        private final Map<Long, Doc> docs = new HashMap<>();
+        // term -> product id -> weighted term frequency
+        private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+        // term with one character removed -> indexed terms producing it
+        private final Map<String, Set<String>> deletions = new HashMap<>();
+        private double totalLength;
+
+        void add(ProductView product) {
+            add(Doc.of(product));
+        }
+
+        // The product must not be indexed already
+        void add(Doc doc) {
+            Long productId = doc.view().productId();
+            for (String term : doc.terms()) {
+                Map<Long, Float> docsForTerm = postings.get(term);
+                if (docsForTerm == null) {
+                    docsForTerm = new HashMap<>();
+                    postings.put(term, docsForTerm);
+                    for (String variant : deletionsOf(term)) {
+                        deletions.computeIfAbsent(variant, k -> new HashSet<>()).add(term);
+                    }
+                }
+                docsForTerm.put(productId, doc.weights().get(term));
+            }
+            docs.put(productId, doc);
+            totalLength += doc.length();
+        }
+
+        void remove(Long productId) {
+            Doc doc = docs.remove(productId);
+            if (doc == null) return;
+            totalLength -= doc.length();
+            for (String term : doc.terms()) {
+                Map<Long, Float> docsForTerm = postings.get(term);
+                if (docsForTerm == null) continue;
+                docsForTerm.remove(productId);
+                if (docsForTerm.isEmpty()) {
+                    postings.remove(term);
+                    for (String variant : deletionsOf(term)) {
+                        Set<String> terms = deletions.get(variant);
+                        if (terms != null && terms.remove(term) && terms.isEmpty()) deletions.remove(variant);
+                    }
+                }
+            }
+        }
+
+        // Sum of per-query-term BM25 scores, each term taking its best expansion per product,
+        // scaled by the share of query terms the product matched
+        private Map<Long, Double> score(List<String> queryTerms) {
+            double avgLength = docs.isEmpty() ? 1 : Math.max(1, totalLength / docs.size());
+            Map<Long, Double> scores = new HashMap<>();
+            Map<Long, Integer> matched = new HashMap<>();
+
+            for (String queryTerm : queryTerms) {
+                Map<Long, Double> best = new HashMap<>();
+                for (Map.Entry<String, Float> expansion : expand(queryTerm).entrySet()) {
+                    Map<Long, Float> docsForTerm = postings.get(expansion.getKey());
+                    double idf = Math.log(1 + (docs.size() - docsForTerm.size() + 0.5) / (docsForTerm.size() + 0.5));
+                    for (Map.Entry<Long, Float> posting : docsForTerm.entrySet()) {
+                        double tf = posting.getValue();
+                        double norm = K1 * (1 - B + B * docs.get(posting.getKey()).length() / avgLength);
+                        double s = idf * tf * (K1 + 1) / (tf + norm) * expansion.getValue();
+                        best.merge(posting.getKey(), s, Math::max);
+                    }
+                }
+                for (Map.Entry<Long, Double> e : best.entrySet()) {
+                    scores.merge(e.getKey(), e.getValue(), Double::sum);
+                    matched.merge(e.getKey(), 1, Integer::sum);
+                }
+            }
+            scores.replaceAll((id, s) -> s * matched.get(id) / queryTerms.size());
+            return scores;
+        }
+
+        // Indexed terms a query term stands for, with the weight of that kind of match
+        private Map<String, Float> expand(String term) {
+            Map<String, Float> out = new HashMap<>();
+            if (postings.containsKey(term)) out.put(term, 1f);
+
+            int added = 0;
+            for (String candidate : postings.subMap(term, false, term + Character.MAX_VALUE, false).keySet()) {
+                if (added++ >= MAX_PREFIX_EXPANSIONS) break;
+                out.putIfAbsent(candidate, PREFIX_FACTOR);
+            }
+
+            if (term.length() >= MIN_FUZZY_LENGTH && !out.containsKey(term)) {
+                Set<String> candidates = new HashSet<>(deletions.getOrDefault(term, Set.of()));
+                for (String variant : deletionsOf(term)) {
+                    if (postings.containsKey(variant)) candidates.add(variant);
+                    candidates.addAll(deletions.getOrDefault(variant, Set.of()));
+                }
+                for (String candidate : candidates) {
+                    if (isOneEditAway(term, candidate)) out.putIfAbsent(candidate, FUZZY_FACTOR);
+                }
+            }
+            return out;
+        }
+    }
+
+    // ---------------- text ----------------
+
+    private static float addTokens(Map<String, Float> weighted, String text, float weight) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) weighted.merge(token, weight, Float::sum);
+        return tokens.size() * weight;
+    }
+
+    // Lowercased, accent-folded runs of letters and digits
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}+", "")
+            .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static List<String> deletionsOf(String term) {
+        if (term.length() < MIN_FUZZY_LENGTH - 1) return List.of();
+        List<String> out = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            out.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return out;
+    }
+
+    // Optimal string alignment distance <= 1 (an adjacent swap counts as one edit)
+    private static boolean isOneEditAway(String a, String b) {
+        if (a.equals(b)) return false;
+        int la = a.length(), lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+        int i = 0;
+        while (i < Math.min(la, lb) && a.charAt(i) == b.charAt(i)) i++;
+        if (la == lb) {
+            if (a.substring(i + 1).equals(b.substring(i + 1))) return true;
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        return la > lb ? a.substring(i + 1).equals(b.substring(i)) : a.substring(i).equals(b.substring(i + 1));
+    }
+}
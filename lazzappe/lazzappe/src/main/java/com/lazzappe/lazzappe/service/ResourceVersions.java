@@ -0,0 +1,100 @@
+package com.lazzappe.lazzappe.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters behind the ETags of the polled GET endpoints: the product list, each
+ * seller's product list and each user's profile. Writers bump a counter once their change
+ * is committed; readers take the ETag before loading anything, so a client whose
+ * If-None-Match still matches gets a 304 without a single query.
+ *
+ * Seller lists are keyed by the id in the request path, which may be a seller id or the
+ * seller's user id, so product writes bump both. Tags carry a per-process epoch, so a
+ * restart or another instance never confirms a copy it didn't serve; like the product
+ * cache, the counters only see writes made through this instance.
+ *
+ * Tags are weak: the JSON, CBOR and Smile forms of a version, gzipped or not, all carry
+ * the same one, and Tomcat won't compress a response with a strong ETag.
+ *
+ * Cache-Control: the product lists are public with max-age lazzappe.http.catalog-max-age-seconds
+ * (0, revalidate on every poll); profiles are private and always revalidated.
+ */
+@Component
+public class ResourceVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36)
+        + Integer.toString(ThreadLocalRandom.current().nextInt(36 * 36 * 36), 36);
+    private final AtomicLong catalog = new AtomicLong();
+    private final Map<Long, AtomicLong> sellers = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> profiles = new ConcurrentHashMap<>();
+
+    @Value("${lazzappe.http.catalog-max-age-seconds:0}")
+    private long catalogMaxAge;
+
+    // ---------------- tags ----------------
+
+    public String catalogETag() {
+        return "W/\"c-" + epoch + "-" + catalog.get() + "\"";
+    }
+
+    public String sellerETag(Long sellerKey) {
+        return "W/\"s" + sellerKey + "-" + epoch + "-" + version(sellers, sellerKey) + "\"";
+    }
+
+    public String profileETag(Long userId) {
+        return "W/\"u" + userId + "-" + epoch + "-" + version(profiles, userId) + "\"";
+    }
+
+    public CacheControl catalogCacheControl() {
+        return CacheControl.maxAge(Duration.ofSeconds(catalogMaxAge)).cachePublic().mustRevalidate();
+    }
+
+    public CacheControl profileCacheControl() {
+        return CacheControl.noCache().cachePrivate();
+    }
+
+    // ---------------- writes ----------------
+
+    /** Products changed; sellerKeys are the owners' seller and user ids (nulls are skipped). */
+    public void productsChanged(Long... sellerKeys) {
+        afterCommit(() -> {
+            catalog.incrementAndGet();
+            for (Long key : sellerKeys) {
+                if (key != null) sellers.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+            }
+        });
+    }
+
+    public void profileChanged(Long userId) {
+        afterCommit(() -> profiles.computeIfAbsent(userId, k -> new AtomicLong()).incrementAndGet());
+    }
+
+    private static long version(Map<Long, AtomicLong> versions, Long key) {
+        AtomicLong version = versions.get(key);
+        return version != null ? version.get() : 0;
+    }
+
+    // A bump before the commit could let a reader tag the old rows with the new version
+    private static void afterCommit(Runnable bump) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump.run();
+            }
+        });
+    }
+}
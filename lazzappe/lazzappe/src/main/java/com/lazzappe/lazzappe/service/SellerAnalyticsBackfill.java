@@ -0,0 +1,79 @@
+package com.lazzappe.lazzappe.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fills the seller sales rollups from the existing orders the first time they are
+ * empty, with one grouped INSERT ... SELECT per table. Order events already in the
+ * outbox are marked applied in the same transaction, since the backfill has counted
+ * them. Runs before the outbox dispatcher starts polling.
+ */
+@Component
+public class SellerAnalyticsBackfill {
+
+    private static final String CANCELLED_QTY = "CASE WHEN o.status = 'CANCELLED' THEN oi.quantity ELSE 0 END";
+    private static final String CANCELLED_AMOUNT = "CASE WHEN o.status = 'CANCELLED' THEN COALESCE(oi.subtotal, 0) ELSE 0 END";
+    private static final String DELIVERED_QTY = "CASE WHEN o.status = 'DELIVERED' THEN oi.quantity ELSE 0 END";
+    private static final String DELIVERED_AMOUNT = "CASE WHEN o.status = 'DELIVERED' THEN COALESCE(oi.subtotal, 0) ELSE 0 END";
+    // Seller the line was bought from, or the product's seller for lines older than that column
+    private static final String SELLER = "COALESCE(oi.seller_id, p.seller_id)";
+    private static final String SOLD_LINES =
+        "FROM order_item oi JOIN orders o ON o.order_id = oi.order_id " +
+        "JOIN product p ON p.product_id = oi.product_id WHERE " + SELLER + " IS NOT NULL ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Injected so the rollup tables exist before this runs
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void backfill() {
+        try {
+            Integer rollups = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM seller_daily_sales LIMIT 1) r", Integer.class);
+            Integer orders = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM orders LIMIT 1) o", Integer.class);
+            if (rollups == null || rollups > 0 || orders == null || orders == 0) return;
+
+            long start = System.currentTimeMillis();
+            int days = new TransactionTemplate(transactionManager).execute(status -> {
+                jdbcTemplate.update(
+                    "INSERT INTO seller_product_daily_sales (seller_id, sales_date, product_id, units_sold, revenue, " +
+                    "cancelled_units, cancelled_revenue, delivered_units, delivered_revenue) " +
+                    "SELECT " + SELLER + ", CAST(o.order_date AS DATE), p.product_id, SUM(oi.quantity), SUM(COALESCE(oi.subtotal, 0)), " +
+                    "SUM(" + CANCELLED_QTY + "), SUM(" + CANCELLED_AMOUNT + "), SUM(" + DELIVERED_QTY + "), SUM(" + DELIVERED_AMOUNT + ") " +
+                    SOLD_LINES + "GROUP BY " + SELLER + ", CAST(o.order_date AS DATE), p.product_id");
+                int n = jdbcTemplate.update(
+                    "INSERT INTO seller_daily_sales (seller_id, sales_date, orders_count, cancelled_orders, delivered_orders, " +
+                    "units_sold, revenue, cancelled_units, cancelled_revenue, delivered_units, delivered_revenue) " +
+                    "SELECT " + SELLER + ", CAST(o.order_date AS DATE), COUNT(DISTINCT o.order_id), " +
+                    "COUNT(DISTINCT CASE WHEN o.status = 'CANCELLED' THEN o.order_id END), " +
+                    "COUNT(DISTINCT CASE WHEN o.status = 'DELIVERED' THEN o.order_id END), " +
+                    "SUM(oi.quantity), SUM(COALESCE(oi.subtotal, 0)), " +
+                    "SUM(" + CANCELLED_QTY + "), SUM(" + CANCELLED_AMOUNT + "), SUM(" + DELIVERED_QTY + "), SUM(" + DELIVERED_AMOUNT + ") " +
+                    SOLD_LINES + "GROUP BY " + SELLER + ", CAST(o.order_date AS DATE)");
+                jdbcTemplate.update(
+                    "INSERT INTO analytics_applied_event (outbox_event_id, applied_at) " +
+                    "SELECT e.outbox_event_id, ? FROM outbox_event e WHERE e.aggregate_type = ? " +
+                    "AND NOT EXISTS (SELECT 1 FROM analytics_applied_event a WHERE a.outbox_event_id = e.outbox_event_id)",
+                    LocalDateTime.now(), OutboxService.ORDER);
+                return n;
+            });
+            System.out.println("[ANALYTICS] Backfilled " + days + " seller days in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (DataAccessException e) {
+            System.err.println("[ANALYTICS] Backfill failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.lazzappe.lazzappe.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.dto.OrderSalesLine;
+import com.lazzappe.lazzappe.entity.OutboxEvent;
+import com.lazzappe.lazzappe.repository.AnalyticsAppliedEventRepository;
+import com.lazzappe.lazzappe.repository.OrderItemRepository;
+import com.lazzappe.lazzappe.repository.SellerDailySalesRepository;
+import com.lazzappe.lazzappe.repository.SellerProductDailySalesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Folds order events into the seller sales rollups.
+ *
+ * A placed order adds its lines to the day it was placed. A status change only moves
+ * the cancelled and delivered columns, by +1 when an order enters that status and -1
+ * when it leaves it, so the rollups stay right whatever order the statuses come in.
+ * Each event is applied in one transaction together with its applied marker, which
+ * makes redelivery from the outbox a no-op.
+ */
+@Component
+public class SellerAnalyticsHandler implements OutboxHandler {
+
+    static final String CANCELLED = "CANCELLED";
+    static final String DELIVERED = "DELIVERED";
+
+    @Autowired
+    private SellerDailySalesRepository sellerDailySalesRepository;
+
+    @Autowired
+    private SellerProductDailySalesRepository sellerProductDailySalesRepository;
+
+    @Autowired
+    private AnalyticsAppliedEventRepository appliedEventRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private record SellerDay(Long sellerId, LocalDate day) {}
+
+    private record ProductDay(Long sellerId, LocalDate day, Long productId) {}
+
+    // Changes to one rollup row
+    private static class Delta {
+        int orders, cancelledOrders, deliveredOrders;
+        int units, cancelledUnits, deliveredUnits;
+        BigDecimal revenue = BigDecimal.ZERO;
+        BigDecimal cancelledRevenue = BigDecimal.ZERO;
+        BigDecimal deliveredRevenue = BigDecimal.ZERO;
+    }
+
+    public SellerAnalyticsHandler(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return OutboxService.ORDER_PLACED.equals(eventType) || OutboxService.ORDER_STATUS_CHANGED.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        JsonNode payload = objectMapper.readTree(event.getPayload());
+        transactionTemplate.executeWithoutResult(status -> {
+            if (appliedEventRepository.existsById(event.getId())) return;
+
+            Map<SellerDay, Delta> sellerDeltas = new HashMap<>();
+            Map<ProductDay, Delta> productDeltas = new HashMap<>();
+            if (OutboxService.ORDER_PLACED.equals(event.getEventType())) {
+                collectPlaced(payload, sellerDeltas, productDeltas);
+            } else {
+                collectStatusChange(payload, sellerDeltas, productDeltas);
+            }
+            write(sellerDeltas, productDeltas);
+            appliedEventRepository.markApplied(event.getId(), LocalDateTime.now());
+        });
+    }
+
+    // Lines come from the event itself, so products deleted since still count
+    private void collectPlaced(JsonNode payload, Map<SellerDay, Delta> sellerDeltas, Map<ProductDay, Delta> productDeltas) {
+        LocalDate day = LocalDateTime.parse(payload.path("order_date").asText()).toLocalDate();
+        Set<Long> sellers = new HashSet<>();
+        for (JsonNode item : payload.path("items")) {
+            if (item.path("seller_id").isNull() || item.path("seller_id").isMissingNode()) continue;
+            Long sellerId = item.get("seller_id").asLong();
+            int quantity = item.path("quantity").asInt();
+            BigDecimal subtotal = item.path("subtotal").decimalValue();
+
+            Delta p = productDeltas.computeIfAbsent(new ProductDay(sellerId, day, item.path("product_id").asLong()), k -> new Delta());
+            p.units += quantity;
+            p.revenue = p.revenue.add(subtotal);
+
+            Delta s = sellerDeltas.computeIfAbsent(new SellerDay(sellerId, day), k -> new Delta());
+            s.units += quantity;
+            s.revenue = s.revenue.add(subtotal);
+            if (sellers.add(sellerId)) s.orders++;
+        }
+    }
+
+    private void collectStatusChange(JsonNode payload, Map<SellerDay, Delta> sellerDeltas, Map<ProductDay, Delta> productDeltas) {
+        String from = payload.path("from").asText(null);
+        String to = payload.path("to").asText(null);
+        int cancelled = (CANCELLED.equals(to) ? 1 : 0) - (CANCELLED.equals(from) ? 1 : 0);
+        int delivered = (DELIVERED.equals(to) ? 1 : 0) - (DELIVERED.equals(from) ? 1 : 0);
+        if (cancelled == 0 && delivered == 0) return;
+
+        Set<Long> sellers = new HashSet<>();
+        for (OrderSalesLine line : orderItemRepository.findSalesLines(payload.path("order_id").asLong())) {
+            LocalDate day = line.orderDate().toLocalDate();
+            BigDecimal subtotal = line.subtotal() != null ? line.subtotal() : BigDecimal.ZERO;
+            Delta p = productDeltas.computeIfAbsent(new ProductDay(line.sellerId(), day, line.productId()), k -> new Delta());
+            Delta s = sellerDeltas.computeIfAbsent(new SellerDay(line.sellerId(), day), k -> new Delta());
+            for (Delta d : new Delta[] {p, s}) {
+                d.cancelledUnits += cancelled * line.quantity();
+                d.cancelledRevenue = d.cancelledRevenue.add(subtotal.multiply(BigDecimal.valueOf(cancelled)));
+                d.deliveredUnits += delivered * line.quantity();
+                d.deliveredRevenue = d.deliveredRevenue.add(subtotal.multiply(BigDecimal.valueOf(delivered)));
+            }
+            if (sellers.add(line.sellerId())) {
+                s.cancelledOrders += cancelled;
+                s.deliveredOrders += delivered;
+            }
+        }
+    }
+
+    private void write(Map<SellerDay, Delta> sellerDeltas, Map<ProductDay, Delta> productDeltas) {
+        for (Map.Entry<ProductDay, Delta> e : productDeltas.entrySet()) {
+            ProductDay k = e.getKey();
+            Delta d = e.getValue();
+            sellerProductDailySalesRepository.addDeltas(k.sellerId(), k.day(), k.productId(), d.units, d.revenue,
+                d.cancelledUnits, d.cancelledRevenue, d.deliveredUnits, d.deliveredRevenue);
+        }
+        for (Map.Entry<SellerDay, Delta> e : sellerDeltas.entrySet()) {
+            SellerDay k = e.getKey();
+            Delta d = e.getValue();
+            sellerDailySalesRepository.addDeltas(k.sellerId(), k.day(), d.orders, d.cancelledOrders, d.deliveredOrders,
+                d.units, d.revenue, d.cancelledUnits, d.cancelledRevenue, d.deliveredUnits, d.deliveredRevenue);
+        }
+    }
+}
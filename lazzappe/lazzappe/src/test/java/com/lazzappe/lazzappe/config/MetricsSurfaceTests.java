@@ -0,0 +1,58 @@
+package com.lazzappe.lazzappe.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Metrics stay off the public port, and statements a streamed body runs are counted
+ * toward its request.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class MetricsSurfaceTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void actuatorIsNotOnThePublicPort() throws Exception {
+        mvc.perform(get("/actuator/prometheus")).andExpect(status().isNotFound());
+        mvc.perform(get("/actuator/metrics")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void streamedBodyStatementsCountTowardTheRequest() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"ms_seller\",\"email\":\"ms_seller@test\",\"password\":\"pw\","
+                    + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"ms\"}"))
+            .andExpect(status().isOk());
+        String login = mvc.perform(MockMvcRequestBuilders.post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"ms_seller\",\"password\":\"pw\"}"))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        long sellerId = objectMapper.readTree(login).get("seller_id").asLong();
+
+        MvcResult started = mvc.perform(get("/api/products/seller/" + sellerId)).andExpect(status().isOk()).andReturn();
+        assertTrue(started.getRequest().isAsyncStarted());
+        int beforeStreaming = QueryCountMatchers.of(started);
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(started)).andExpect(status().isOk());
+        assertTrue(QueryCountMatchers.of(started) > beforeStreaming,
+            "streamed statements were not counted: " + QueryCountMatchers.of(started));
+    }
+}
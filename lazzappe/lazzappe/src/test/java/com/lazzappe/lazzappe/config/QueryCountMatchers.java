@@ -0,0 +1,41 @@
+package com.lazzappe.lazzappe.config;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockMvc assertions on the statements a request ran, as counted by QueryCountFilter.
+ *
+ *   mvc.perform(get("/api/orders/seller/1")).andExpect(queryCount().atMost(3));
+ *
+ * For code outside a request, wrap it in QueryCounter.count(...) and check the result.
+ */
+public final class QueryCountMatchers {
+
+    private QueryCountMatchers() {}
+
+    public static QueryCountMatchers queryCount() {
+        return new QueryCountMatchers();
+    }
+
+    public static int of(MvcResult result) {
+        Object count = result.getRequest().getAttribute(QueryCountFilter.QUERY_COUNT_ATTRIBUTE);
+        assertNotNull(count, "Request was not counted by QueryCountFilter");
+        return (Integer) count;
+    }
+
+    public ResultMatcher atMost(int max) {
+        return result -> {
+            int count = of(result);
+            assertTrue(count <= max, result.getRequest().getRequestURI() + " ran " + count
+                + " statements, expected at most " + max);
+        };
+    }
+
+    public ResultMatcher exactly(int expected) {
+        return result -> assertEquals(expected, of(result),
+            result.getRequest().getRequestURI() + " statement count");
+    }
+}
@@ -0,0 +1,84 @@
+package com.lazzappe.lazzappe.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTests {
+
+    private ReplicaRoutingDataSource routing;
+
+    @AfterEach
+    void close() throws Exception {
+        ReplicaRoutingDataSource.clearClient();
+        if (routing != null) routing.close();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        routing = routing(database("route_primary"), database("route_replica"));
+
+        assertEquals("route_replica", inTransaction(true));
+        assertEquals("route_primary", inTransaction(false));
+        // Outside a transaction nothing is known about the work, so the primary takes it
+        assertEquals("route_primary", new JdbcTemplate(routing).queryForObject("SELECT name FROM source", String.class));
+    }
+
+    @Test
+    void clientReadsItsOwnWritesFromPrimary() {
+        routing = routing(database("pin_primary"), database("pin_replica"));
+
+        ReplicaRoutingDataSource.bindClient("user:1", "ip:10.0.0.1");
+        inTransaction(false);
+        assertEquals("pin_primary", inTransaction(true));
+
+        // Pinned by either key: the same address before signing in
+        ReplicaRoutingDataSource.bindClient("ip:10.0.0.1");
+        assertEquals("pin_primary", inTransaction(true));
+
+        ReplicaRoutingDataSource.bindClient("user:2", "ip:10.0.0.2");
+        assertEquals("pin_replica", inTransaction(true));
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        JdbcDataSource down = new JdbcDataSource();
+        down.setURL("jdbc:h2:mem:route_missing;IFEXISTS=TRUE");
+        routing = routing(database("fallback_primary"), down);
+
+        assertEquals("fallback_primary", inTransaction(true));
+        assertEquals("fallback_primary", inTransaction(true));
+    }
+
+    private ReplicaRoutingDataSource routing(DataSource primary, DataSource replica) {
+        return new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofMinutes(1), 10, Duration.ofHours(1));
+    }
+
+    // Which database served a transaction
+    private String inTransaction(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+            new JdbcTemplate(routing).queryForObject("SELECT name FROM source", String.class));
+    }
+
+    // A database that names itself
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS source (name VARCHAR(64))");
+        jdbc.update("DELETE FROM source");
+        jdbc.update("INSERT INTO source (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
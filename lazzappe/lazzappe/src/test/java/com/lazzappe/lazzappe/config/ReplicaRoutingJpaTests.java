@@ -0,0 +1,140 @@
+package com.lazzappe.lazzappe.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.repository.ProductRepository;
+import com.lazzappe.lazzappe.service.ProductCache;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routing through the application's own JpaTransactionManager, against a replica that has
+ * the schema but none of the rows: read-only work goes there, while the product cache
+ * and the ETag'd list bodies, which are kept for everyone, are read from the primary.
+ */
+@SpringBootTest(properties = {
+    // Named, not the profile's random one, because seed() copies the schema from it
+    "spring.datasource.url=jdbc:h2:mem:jpaprimary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,CURRENT_ROLE",
+    "lazzappe.db.replicas[0]=" + ReplicaRoutingJpaTests.REPLICA_URL
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingJpaTests {
+
+    static final String REPLICA_URL =
+        "jdbc:h2:mem:jpareplica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,CURRENT_ROLE;DB_CLOSE_DELAY=-1";
+    // Writes come from another client, so read-your-writes doesn't pin the reads below
+    private static final String WRITER_ADDRESS = "10.9.9.9";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCache productCache;
+
+    private long sellerId;
+    private long productId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        JdbcTemplate primary = new JdbcTemplate(h2("jdbc:h2:mem:jpaprimary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,CURRENT_ROLE"));
+        JdbcTemplate replica = new JdbcTemplate(h2(REPLICA_URL));
+        for (String statement : primary.queryForList("SCRIPT NODATA", String.class)) replica.execute(statement);
+
+        post("/api/auth/register", "{\"username\":\"rj_seller\",\"email\":\"rj_seller@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"rj\"}");
+        sellerId = post("/api/auth/login", "{\"username\":\"rj_seller\",\"password\":\"pw\"}").get("seller_id").asLong();
+        productId = post("/api/products", "{\"name\":\"fresh\",\"price\":3,\"stock\":4,\"seller_id\":" + sellerId + "}")
+            .get("product_id").asLong();
+    }
+
+    @Test
+    void readOnlyJpaTransactionsGoToTheReplica() {
+        assertInstanceOf(JpaTransactionManager.class, transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertTrue(readOnly.execute(status -> productRepository.findViewById(productId)).isEmpty());
+        // Spring Data's own read-only transaction on the inherited finders
+        assertTrue(productRepository.findById(productId).isEmpty());
+
+        assertTrue(new TransactionTemplate(transactionManager).execute(status -> productRepository.findViewById(productId))
+            .isPresent());
+        assertTrue(ReplicaRoutingDataSource.onPrimary(() -> productRepository.findViewById(productId)).isPresent());
+    }
+
+    @Test
+    void sharedCopiesAreReadFromThePrimary() throws Exception {
+        productCache.invalidate(productId);
+        assertNotNull(productCache.get(productId));
+
+        assertTrue(streamed(get("/api/products")).contains("\"fresh\""));
+        assertTrue(streamed(get("/api/products/seller/" + sellerId).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .contains("\"fresh\""));
+        // The kept gzip copy
+        assertTrue(streamed(get("/api/products/seller/" + sellerId).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .contains("\"fresh\""));
+    }
+
+    private String streamed(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(status().isOk()).andReturn();
+        }
+        byte[] body = result.getResponse().getContentAsByteArray();
+        if ("gzip".equals(result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes();
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private JsonNode post(String uri, String body) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post(uri).contentType(MediaType.APPLICATION_JSON).content(body)
+                .with(request -> {
+                    request.setRemoteAddr(WRITER_ADDRESS);
+                    return request;
+                }))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private static JdbcDataSource h2(String url) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+}
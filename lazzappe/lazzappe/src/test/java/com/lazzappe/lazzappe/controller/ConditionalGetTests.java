@@ -0,0 +1,141 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static com.lazzappe.lazzappe.config.QueryCountMatchers.queryCount;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Polled lists and the profile answer 304 without touching the database until they change.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ConditionalGetTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private long sellerId;
+    private long sellerUserId;
+    private String sellerToken;
+
+    @BeforeAll
+    void seed() throws Exception {
+        post("/api/auth/register", "{\"username\":\"cg_seller\",\"email\":\"cg_seller@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"cg\"}");
+        JsonNode login = post("/api/auth/login", "{\"username\":\"cg_seller\",\"password\":\"pw\"}");
+        sellerId = login.get("seller_id").asLong();
+        sellerUserId = login.get("user_id").asLong();
+        sellerToken = login.get("token").asText();
+        product("first");
+    }
+
+    @Test
+    void productListsRevalidateWithoutQueries() throws Exception {
+        for (String uri : new String[] {"/api/products", "/api/products/seller/" + sellerId,
+                                        "/api/products/seller/" + sellerUserId}) {
+            MvcResult first = list(uri, null);
+            String etag = first.getResponse().getHeader("ETag");
+            assertNotNull(etag, uri);
+            assertTrue(first.getResponse().getHeader("Cache-Control").contains("public"), uri);
+
+            mvc.perform(get(uri).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(queryCount().exactly(0));
+
+            product("more for " + uri);
+            String changed = list(uri, etag).getResponse().getHeader("ETag");
+            assertNotEquals(etag, changed, uri);
+        }
+    }
+
+    @Test
+    void checkoutMovesTheSellerListsOn() throws Exception {
+        long productId = product("bought");
+        String[] uris = {"/api/products/seller/" + sellerId, "/api/products/seller/" + sellerUserId};
+        String[] etags = new String[uris.length];
+        for (int i = 0; i < uris.length; i++) etags[i] = list(uris[i], null).getResponse().getHeader("ETag");
+
+        post("/api/auth/register", "{\"username\":\"cg_buyer\",\"email\":\"cg_buyer@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\"}");
+        String buyer = post("/api/auth/login", "{\"username\":\"cg_buyer\",\"password\":\"pw\"}").get("token").asText();
+        post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":1}", buyer);
+        post("/api/cart/checkout", "{\"paymentMethod\":\"COD\",\"shippingAddress\":\"a\",\"totalAmount\":10}", buyer);
+
+        for (int i = 0; i < uris.length; i++) {
+            assertNotEquals(etags[i], list(uris[i], etags[i]).getResponse().getHeader("ETag"), uris[i]);
+        }
+    }
+
+    @Test
+    void profileRevalidatesWithoutQueriesUntilUpdated() throws Exception {
+        MvcResult first = mvc.perform(get("/api/auth/profile").header("Authorization", "Bearer " + sellerToken))
+            .andExpect(status().isOk()).andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        assertTrue(first.getResponse().getHeader("Cache-Control").contains("private"));
+        assertTrue(first.getResponse().getHeaders("Vary").contains("Authorization"));
+
+        MvcResult revalidated = mvc.perform(get("/api/auth/profile").header("Authorization", "Bearer " + sellerToken)
+                .header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andExpect(queryCount().exactly(0))
+            .andReturn();
+        assertTrue(revalidated.getResponse().getHeaders("Vary").contains("Authorization"));
+
+        mvc.perform(put("/api/auth/profile").header("Authorization", "Bearer " + sellerToken)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"phone_number\":\"555\"}"))
+            .andExpect(status().isOk());
+        JsonNode profile = objectMapper.readTree(mvc.perform(get("/api/auth/profile")
+                .header("Authorization", "Bearer " + sellerToken).header("If-None-Match", etag))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals("555", profile.get("phone_number").asText());
+    }
+
+    // Streamed lists finish on an async dispatch, which also closes the request's entity manager
+    private MvcResult list(String uri, String ifNoneMatch) throws Exception {
+        var request = get(uri);
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        MvcResult result = mvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+        return result;
+    }
+
+    private long product(String name) throws Exception {
+        return post("/api/products", "{\"name\":\"" + name + "\",\"price\":10,\"stock\":5,\"seller_id\":" + sellerId + "}")
+            .get("product_id").asLong();
+    }
+
+    private JsonNode post(String uri, String body) throws Exception {
+        return post(uri, body, null);
+    }
+
+    private JsonNode post(String uri, String body, String token) throws Exception {
+        var request = MockMvcRequestBuilders.post(uri).contentType(MediaType.APPLICATION_JSON).content(body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        String response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
@@ -0,0 +1,138 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.lazzappe.lazzappe.config.QueryCountMatchers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static com.lazzappe.lazzappe.config.QueryCountMatchers.queryCount;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Binary formats are negotiated by Accept, and the ETag'd lists are gzipped once per version.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ContentEncodingTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private long sellerId;
+    private long productId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        post("/api/auth/register", "{\"username\":\"ce_seller\",\"email\":\"ce_seller@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"ce\"}");
+        sellerId = post("/api/auth/login", "{\"username\":\"ce_seller\",\"password\":\"pw\"}").get("seller_id").asLong();
+        productId = post("/api/products", "{\"name\":\"binary\",\"price\":10,\"stock\":5,\"seller_id\":" + sellerId + "}")
+            .get("product_id").asLong();
+    }
+
+    @Test
+    void listsAndDocumentsNegotiateBinaryFormats() throws Exception {
+        MvcResult cbor = list(get("/api/products").accept(MediaType.APPLICATION_CBOR));
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, cbor.getResponse().getContentType());
+        JsonNode products = new ObjectMapper(new CBORFactory()).readTree(cbor.getResponse().getContentAsByteArray());
+        assertTrue(products.isArray());
+        // The context, and so the catalog, is shared with other test classes
+        JsonNode listed = null;
+        for (JsonNode p : products) if (p.get("product_id").asLong() == productId) listed = p;
+        assertEquals("binary", listed.get("name").asText());
+
+        // Wildcards alone keep JSON
+        MvcResult json = list(get("/api/products").header("Accept", "*/*"));
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, json.getResponse().getContentType());
+
+        byte[] smile = mvc.perform(get("/api/products/" + productId).accept(JsonStreamWriter.SMILE))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+        JsonNode product = new ObjectMapper(new SmileFactory()).readTree(smile);
+        assertEquals(productId, product.get("product_id").asLong());
+    }
+
+    @Test
+    void gzippedListIsServedFromCacheUntilItChanges() throws Exception {
+        String uri = "/api/products/seller/" + sellerId;
+        MvcResult first = list(get(uri).header("Accept-Encoding", "gzip, deflate"));
+        assertEquals("gzip", first.getResponse().getHeader("Content-Encoding"));
+        assertTrue(first.getResponse().getHeaders("Vary").toString().contains("Accept-Encoding"));
+        byte[] compressed = first.getResponse().getContentAsByteArray();
+        assertEquals("binary", objectMapper.readTree(gunzip(compressed)).get(0).get("name").asText());
+
+        MvcResult second = mvc.perform(get(uri).header("Accept-Encoding", "gzip"))
+            .andExpect(queryCount().exactly(0)).andReturn();
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(second));
+        assertArrayEquals(compressed, second.getResponse().getContentAsByteArray());
+        assertEquals(first.getResponse().getHeader("ETag"), second.getResponse().getHeader("ETag"));
+
+        // A client that refuses gzip gets plain JSON
+        MvcResult plain = list(get(uri).header("Accept-Encoding", "gzip;q=0, identity"));
+        assertNull(plain.getResponse().getHeader("Content-Encoding"));
+        assertEquals(1, objectMapper.readTree(plain.getResponse().getContentAsString()).size());
+
+        post("/api/products", "{\"name\":\"second\",\"price\":10,\"stock\":5,\"seller_id\":" + sellerId + "}");
+        MvcResult changed = list(get(uri).header("Accept-Encoding", "gzip"));
+        assertEquals(2, objectMapper.readTree(gunzip(changed.getResponse().getContentAsByteArray())).size());
+    }
+
+    @Test
+    void unknownSellersListIsNotKept() throws Exception {
+        String uri = "/api/products/seller/999999";
+        MvcResult first = list(get(uri).header("Accept-Encoding", "gzip"));
+        assertEquals(0, objectMapper.readTree(body(first)).size());
+
+        // Looked up again rather than served from kept bytes
+        MvcResult second = list(get(uri).header("Accept-Encoding", "gzip"));
+        assertTrue(QueryCountMatchers.of(second) > 0);
+        assertEquals(0, objectMapper.readTree(body(second)).size());
+    }
+
+    // Streamed lists finish on an async dispatch, which also closes the request's entity manager
+    private MvcResult list(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mvc.perform(request).andExpect(status().isOk()).andReturn();
+        if (result.getRequest().isAsyncStarted()) mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+        return result;
+    }
+
+    private static byte[] body(MvcResult result) throws Exception {
+        byte[] body = result.getResponse().getContentAsByteArray();
+        return "gzip".equals(result.getResponse().getHeader("Content-Encoding")) ? gunzip(body) : body;
+    }
+
+    private static byte[] gunzip(byte[] body) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private JsonNode post(String uri, String body) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post(uri)
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
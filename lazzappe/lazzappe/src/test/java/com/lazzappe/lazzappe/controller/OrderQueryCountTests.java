@@ -0,0 +1,169 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.config.QueryCountFilter;
+import com.lazzappe.lazzappe.config.QueryCountMatchers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.lazzappe.lazzappe.config.QueryCountMatchers.queryCount;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets for the order listings. Each listing must cost the same number of
+ * statements however many orders it returns; a lazy association touched per order
+ * (an N+1) fails the build here.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderQueryCountTests {
+
+    // User lookup, order page, order views, order lines
+    private static final int LISTING_BUDGET = 4;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QueryCountFilter queryCountFilter;
+
+    private long sellerUserId;
+    private long customerUserId;
+    private String customerToken;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeAll
+    void seed() throws Exception {
+        post("/api/auth/register", "{\"username\":\"qc_seller\",\"email\":\"qc_seller@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"qc\"}", null);
+        post("/api/auth/register", "{\"username\":\"qc_customer\",\"email\":\"qc_customer@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\"}", null);
+        JsonNode seller = post("/api/auth/login", "{\"username\":\"qc_seller\",\"password\":\"pw\"}", null);
+        JsonNode customer = post("/api/auth/login", "{\"username\":\"qc_customer\",\"password\":\"pw\"}", null);
+        sellerUserId = seller.get("user_id").asLong();
+        customerUserId = customer.get("user_id").asLong();
+        customerToken = customer.get("token").asText();
+
+        for (int i = 1; i <= 3; i++) {
+            productIds.add(post("/api/products", "{\"name\":\"qc product " + i + "\",\"price\":10,\"stock\":1000,"
+                + "\"seller_id\":" + seller.get("seller_id").asLong() + ",\"category\":\"qc\"}", null)
+                .get("product_id").asLong());
+        }
+    }
+
+    @Test
+    void orderListingsDoNotGrowWithOrders() throws Exception {
+        placeOrders(1);
+        int sellerOne = count("/api/orders/seller/" + sellerUserId);
+        int customerOne = count("/api/orders/customer/" + customerUserId);
+
+        placeOrders(5);
+        int sellerMany = count("/api/orders/seller/" + sellerUserId);
+        int customerMany = count("/api/orders/customer/" + customerUserId);
+
+        assertEquals(sellerOne, sellerMany, "seller listing statements grew with the number of orders");
+        assertEquals(customerOne, customerMany, "customer listing statements grew with the number of orders");
+        mvc.perform(get("/api/orders/seller/" + sellerUserId)).andExpect(queryCount().atMost(LISTING_BUDGET));
+        mvc.perform(get("/api/orders/customer/" + customerUserId)).andExpect(queryCount().atMost(LISTING_BUDGET));
+        mvc.perform(get("/api/orders/seller/" + sellerUserId).param("status", "pending"))
+            .andExpect(queryCount().atMost(LISTING_BUDGET));
+    }
+
+    @Test
+    void customerHistoryIsPaged() throws Exception {
+        placeOrders(3);
+        JsonNode all = list("/api/orders/customer/" + customerUserId + "?size=200");
+        assertFalse(all.get("has_more").asBoolean());
+
+        List<Long> paged = new ArrayList<>();
+        JsonNode page;
+        int n = 0;
+        do {
+            page = list("/api/orders/customer/" + customerUserId + "?size=2&page=" + n++);
+            assertTrue(page.get("items").size() <= 2);
+            for (JsonNode order : page.get("items")) paged.add(order.get("order_id").asLong());
+        } while (page.get("has_more").asBoolean());
+
+        List<Long> expected = new ArrayList<>();
+        for (JsonNode order : all.get("items")) expected.add(order.get("order_id").asLong());
+        assertTrue(expected.size() >= 3);
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void overBudgetInRejectModeIsAServerError() throws Exception {
+        ReflectionTestUtils.setField(queryCountFilter, "mode", "reject");
+        ReflectionTestUtils.setField(queryCountFilter, "budget", 1);
+        try {
+            String body = mvc.perform(get("/api/orders/seller/" + sellerUserId))
+                .andExpect(status().isInternalServerError()).andReturn().getResponse().getContentAsString();
+            assertEquals("Query budget exceeded", objectMapper.readTree(body).get("error").asText());
+        } finally {
+            ReflectionTestUtils.setField(queryCountFilter, "mode", "log");
+            ReflectionTestUtils.setField(queryCountFilter, "budget", 30);
+        }
+    }
+
+    // The cart's catch-all would answer the refused statement with a 400
+    @Test
+    void overBudgetInACaughtHandlerIsStillAServerError() throws Exception {
+        ReflectionTestUtils.setField(queryCountFilter, "mode", "reject");
+        ReflectionTestUtils.setField(queryCountFilter, "budget", 0);
+        try {
+            String body = mvc.perform(MockMvcRequestBuilders.post("/api/cart/add").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"productId\":" + productIds.get(0) + ",\"quantity\":1}")
+                    .header("Authorization", "Bearer " + customerToken))
+                .andExpect(status().isInternalServerError()).andReturn().getResponse().getContentAsString();
+            assertEquals("Query budget exceeded", objectMapper.readTree(body).get("error").asText());
+        } finally {
+            ReflectionTestUtils.setField(queryCountFilter, "mode", "log");
+            ReflectionTestUtils.setField(queryCountFilter, "budget", 30);
+        }
+    }
+
+    private JsonNode list(String uri) throws Exception {
+        return objectMapper.readTree(mvc.perform(get(uri)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+    }
+
+    private int count(String uri) throws Exception {
+        return QueryCountMatchers.of(mvc.perform(get(uri)).andExpect(status().isOk()).andReturn());
+    }
+
+    // Each order holds every product, so the line count grows with the orders too
+    private void placeOrders(int orders) throws Exception {
+        for (int n = 0; n < orders; n++) {
+            for (long productId : productIds) {
+                post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":1}", customerToken);
+            }
+            post("/api/cart/checkout", "{\"paymentMethod\":\"COD\",\"shippingAddress\":\"a\",\"totalAmount\":30}",
+                customerToken);
+        }
+    }
+
+    private JsonNode post(String uri, String body, String token) throws Exception {
+        var request = MockMvcRequestBuilders.post(uri).contentType(MediaType.APPLICATION_JSON).content(body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        String response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
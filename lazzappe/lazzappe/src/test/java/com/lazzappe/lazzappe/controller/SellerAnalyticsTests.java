@@ -0,0 +1,102 @@
+package com.lazzappe.lazzappe.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.service.OutboxDispatcher;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Sales figures are only shown to their seller, and stay with the seller a line was
+ * bought from when the product changes hands afterwards.
+ */
+@SpringBootTest(properties = {
+    "lazzappe.outbox.poll-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class SellerAnalyticsTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Test
+    void onlyTheSellerSeesTheirSales() throws Exception {
+        JsonNode seller = seller("sa_owner");
+        JsonNode other = seller("sa_other");
+        String uri = "/api/analytics/seller/" + seller.get("user_id").asLong() + "/summary";
+
+        mvc.perform(get(uri)).andExpect(status().isForbidden());
+        mvc.perform(get(uri).header("Authorization", "Bearer " + other.get("token").asText()))
+            .andExpect(status().isForbidden());
+        mvc.perform(get(uri).header("Authorization", "Bearer " + seller.get("token").asText()))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void salesStayWithTheSellerAfterTheProductMoves() throws Exception {
+        JsonNode first = seller("sa_first");
+        JsonNode second = seller("sa_second");
+        long productId = post("/api/products", "{\"name\":\"moving\",\"price\":10,\"stock\":5,\"seller_id\":"
+            + first.get("seller_id").asLong() + "}", null).get("product_id").asLong();
+
+        String buyer = login("sa_buyer", false).get("token").asText();
+        post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":1}", buyer);
+        long orderId = post("/api/cart/checkout",
+            "{\"paymentMethod\":\"COD\",\"shippingAddress\":\"a\",\"totalAmount\":10}", buyer).get("order_id").asLong();
+        outboxDispatcher.dispatch();
+
+        mvc.perform(put("/api/products/" + productId).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"seller_id\":" + second.get("seller_id").asLong() + "}"))
+            .andExpect(status().isOk());
+        mvc.perform(put("/api/orders/" + orderId + "/cancel")).andExpect(status().isOk());
+        outboxDispatcher.dispatch();
+
+        JsonNode firstSales = summary(first);
+        assertEquals(1, firstSales.get("orders").asInt());
+        assertEquals(1, firstSales.get("cancelled_orders").asInt());
+        assertEquals(0, summary(second).get("cancelled_orders").asInt());
+    }
+
+    private JsonNode summary(JsonNode seller) throws Exception {
+        String response = mvc.perform(get("/api/analytics/seller/" + seller.get("user_id").asLong() + "/summary")
+                .header("Authorization", "Bearer " + seller.get("token").asText()))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private JsonNode seller(String username) throws Exception {
+        return login(username, true);
+    }
+
+    private JsonNode login(String username, boolean seller) throws Exception {
+        post("/api/auth/register", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@test\","
+            + "\"password\":\"pw\",\"shipping_address\":\"a\""
+            + (seller ? ",\"register_as_seller\":true,\"store_name\":\"" + username + "\"" : "") + "}", null);
+        return post("/api/auth/login", "{\"username\":\"" + username + "\",\"password\":\"pw\"}", null);
+    }
+
+    private JsonNode post(String uri, String body, String token) throws Exception {
+        var request = MockMvcRequestBuilders.post(uri).contentType(MediaType.APPLICATION_JSON).content(body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        String response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
@@ -0,0 +1,80 @@
+package com.lazzappe.lazzappe.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTests {
+
+    @Test
+    void perIpBucketRejectsBurstWithRetryAfter() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(0, new SimpleMeterRegistry());
+        filter.route("POST", "/api/auth/login").perIp(3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send(filter, "POST", "/api/auth/login", "10.0.0.1").getStatus());
+        }
+        MockHttpServletResponse limited = send(filter, "POST", "/api/auth/login", "10.0.0.1");
+        assertEquals(429, limited.getStatus());
+        assertEquals("20", limited.getHeader("Retry-After"));
+
+        // Other addresses and other routes keep their own allowance
+        assertEquals(200, send(filter, "POST", "/api/auth/login", "10.0.0.2").getStatus());
+        assertEquals(200, send(filter, "GET", "/api/products", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void concurrencyLimitFastFailsWhileFull() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(1, new SimpleMeterRegistry());
+        filter.route("POST", "/api/cart/checkout").concurrencyLimited();
+
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                FilterChain blocking = (req, res) -> {
+                    inside.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                };
+                filter.doFilter(request("POST", "/api/cart/checkout", "10.0.0.1"), new MockHttpServletResponse(), blocking);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        holder.start();
+        assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = send(filter, "POST", "/api/cart/checkout", "10.0.0.2");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        release.countDown();
+        holder.join();
+        assertEquals(200, send(filter, "POST", "/api/cart/checkout", "10.0.0.2").getStatus());
+    }
+
+    private static MockHttpServletResponse send(AdmissionControlFilter filter, String method, String uri, String ip)
+            throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(method, uri, ip), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(ip);
+        return request;
+    }
+}
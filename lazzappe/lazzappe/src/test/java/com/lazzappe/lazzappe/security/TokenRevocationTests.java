@@ -0,0 +1,72 @@
+package com.lazzappe.lazzappe.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tokens stop authenticating when the role they carry is switched away or the account is deleted.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class TokenRevocationTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void switchRoleRetiresTheOldToken() throws Exception {
+        post("/api/auth/register", "{\"username\":\"tr_user\",\"email\":\"tr_user@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\"}", null);
+        JsonNode login = post("/api/auth/login", "{\"username\":\"tr_user\",\"password\":\"pw\"}", null);
+        String customerToken = login.get("token").asText();
+        profile(customerToken, 200);
+
+        String sellerToken = post("/api/auth/switch-role", "{\"role\":\"SELLER\"}", customerToken).get("token").asText();
+        profile(customerToken, 403);
+        assertEquals("SELLER", objectMapper.readTree(profile(sellerToken, 200)).get("role").asText());
+    }
+
+    @Test
+    void deletedUsersTokensStopAuthenticating() throws Exception {
+        post("/api/auth/register", "{\"username\":\"tr_gone\",\"email\":\"tr_gone@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\"}", null);
+        JsonNode login = post("/api/auth/login", "{\"username\":\"tr_gone\",\"password\":\"pw\"}", null);
+        String token = login.get("token").asText();
+        profile(token, 200);
+
+        userRepository.deleteById(login.get("user_id").asLong());
+        profile(token, 403);
+    }
+
+    private String profile(String token, int expectedStatus) throws Exception {
+        return mvc.perform(get("/api/auth/profile").header("Authorization", "Bearer " + token))
+            .andExpect(status().is(expectedStatus)).andReturn().getResponse().getContentAsString();
+    }
+
+    private JsonNode post(String uri, String body, String token) throws Exception {
+        var request = MockMvcRequestBuilders.post(uri).contentType(MediaType.APPLICATION_JSON).content(body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        String response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
@@ -0,0 +1,155 @@
+package com.lazzappe.lazzappe.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.repository.CartItemRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cart lines stay one row per product, and adds from anywhere are summed rather than lost.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CartLineMergeTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CartCache cartCache;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long sellerId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        post("/api/auth/register", "{\"username\":\"cm_seller\",\"email\":\"cm_seller@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"cm\"}", null);
+        sellerId = post("/api/auth/login", "{\"username\":\"cm_seller\",\"password\":\"pw\"}", null).get("seller_id").asLong();
+    }
+
+    @Test
+    void concurrentAddsMergeIntoOneLine() throws Exception {
+        long productId = product();
+        String token = customer("cm_tabs");
+
+        ExecutorService tabs = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<JsonNode>> adds = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Callable<JsonNode> add = () -> post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":1}", token);
+                adds.add(tabs.submit(add));
+            }
+            for (Future<JsonNode> add : adds) add.get();
+        } finally {
+            tabs.shutdown();
+        }
+        cartCache.flushAndEvict();
+
+        assertEquals(List.of(8), storedQuantities(productId));
+    }
+
+    @Test
+    void flushAddsToLineWrittenElsewhere() throws Exception {
+        long productId = product();
+        String token = customer("cm_elsewhere");
+        post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":2}", token);
+        cartCache.flushAndEvict();
+        Long cartId = jdbcTemplate.queryForObject(
+            "SELECT cart_id FROM cart_item WHERE product_id = ?", Long.class, productId);
+
+        // Another instance adds the same product, unseen by this instance's cached cart
+        post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":1}", token);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            cartItemRepository.upsertQuantity(-1L, cartId, productId, 3, BigDecimal.TEN));
+        cartCache.flushAndEvict();
+
+        assertEquals(List.of(6), storedQuantities(productId));
+        JsonNode cart = objectMapper.readTree(mvc.perform(get("/api/cart").header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals(6, cart.get(0).get("quantity").asInt());
+    }
+
+    @Test
+    void clientIdStillAddressesLineAfterFlush() throws Exception {
+        long productId = product();
+        String token = customer("cm_stale_id");
+        long clientId = post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":1}", token)
+            .get("item").get("cart_item_id").asLong();
+        assertEquals(-productId, clientId);
+        cartCache.flushAndEvict();
+
+        mvc.perform(put("/api/cart/item/" + clientId).header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":3}"))
+            .andExpect(status().isOk());
+        cartCache.flushAndEvict();
+        assertEquals(List.of(3), storedQuantities(productId));
+
+        mvc.perform(delete("/api/cart/item/" + clientId).header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+        cartCache.flushAndEvict();
+        assertEquals(List.of(), storedQuantities(productId));
+    }
+
+    private List<Integer> storedQuantities(long productId) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM cart_item WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private long product() throws Exception {
+        return post("/api/products", "{\"name\":\"cm product\",\"price\":10,\"stock\":100,\"seller_id\":" + sellerId
+            + ",\"category\":\"cm\"}", null).get("product_id").asLong();
+    }
+
+    private String customer(String username) throws Exception {
+        post("/api/auth/register", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@test\","
+            + "\"password\":\"pw\",\"shipping_address\":\"a\"}", null);
+        return post("/api/auth/login", "{\"username\":\"" + username + "\",\"password\":\"pw\"}", null).get("token").asText();
+    }
+
+    private JsonNode post(String uri, String body, String token) throws Exception {
+        var request = MockMvcRequestBuilders.post(uri)
+            .contentType(MediaType.APPLICATION_JSON).content(body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        String response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
@@ -0,0 +1,87 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.entity.OutboxEvent;
+import com.lazzappe.lazzappe.repository.OutboxEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A later event of an aggregate is not delivered while an earlier one is still undelivered,
+ * even when the two land in different batches.
+ */
+@SpringBootTest(properties = {
+    "lazzappe.outbox.batch-size=1",
+    "lazzappe.outbox.poll-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+@Import(OutboxOrderingTests.RecordingHandler.class)
+class OutboxOrderingTests {
+
+    private static final String TYPE = "TEST_EVENT";
+
+    @Autowired
+    private OutboxDispatcher dispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private RecordingHandler handler;
+
+    @Test
+    void laterEventWaitsForEarlierOneAcrossBatches() {
+        OutboxEvent first = outboxEventRepository.save(new OutboxEvent("test", 1L, TYPE, "{}"));
+        OutboxEvent second = outboxEventRepository.save(new OutboxEvent("test", 1L, TYPE, "{}"));
+        OutboxEvent other = outboxEventRepository.save(new OutboxEvent("test", 2L, TYPE, "{}"));
+        handler.failing.add(first.getId());
+
+        dispatcher.dispatch();
+        assertEquals(List.of(other.getId()), handler.delivered);
+        assertEquals("PENDING", status(second));
+
+        // Given up on: still holds the aggregate back
+        OutboxEvent failed = outboxEventRepository.findById(first.getId()).orElseThrow();
+        failed.setStatus("FAILED");
+        outboxEventRepository.save(failed);
+        dispatcher.dispatch();
+        assertEquals(List.of(other.getId()), handler.delivered);
+
+        failed.setStatus("DONE");
+        outboxEventRepository.save(failed);
+        dispatcher.dispatch();
+        assertEquals(List.of(other.getId(), second.getId()), handler.delivered);
+        assertEquals("DONE", status(second));
+    }
+
+    private String status(OutboxEvent event) {
+        return outboxEventRepository.findById(event.getId()).orElseThrow().getStatus();
+    }
+
+    @TestConfiguration
+    static class RecordingHandler implements OutboxHandler {
+        final Set<Long> failing = ConcurrentHashMap.newKeySet();
+        final List<Long> delivered = new CopyOnWriteArrayList<>();
+
+        @Override
+        public boolean handles(String eventType) {
+            return TYPE.equals(eventType);
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            if (failing.contains(event.getId())) throw new IllegalStateException("handler down");
+            delivered.add(event.getId());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.lazzappe.lazzappe.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhotoStorageServiceTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void formatComesFromTheBytes() throws Exception {
+        PhotoStorageService photos = new PhotoStorageService(dir.toString());
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB), "png", png);
+
+        String ref = photos.store(new ByteArrayInputStream(png.toByteArray()));
+        assertTrue(ref.endsWith(".png"), ref);
+        assertNotNull(photos.resolve(ref));
+        assertTrue(photos.resolveThumbnail(ref).getFileName().toString().contains(".thumb."));
+
+        assertThrows(IllegalArgumentException.class, () ->
+            photos.store(new ByteArrayInputStream("<html>not an image</html>".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void undecodableImageLeavesNothingBehind() throws Exception {
+        PhotoStorageService photos = new PhotoStorageService(dir.toString());
+        byte[] broken = Arrays.copyOf(new byte[] {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}, 64);
+
+        assertThrows(IllegalArgumentException.class, () -> photos.store(new ByteArrayInputStream(broken)));
+        try (var files = Files.walk(dir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.lazzappe.lazzappe.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.config.QueryCountMatchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+
+import static com.lazzappe.lazzappe.config.QueryCountMatchers.queryCount;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Archiving hides products everywhere but keeps the ones orders refer to, in a fixed
+ * number of statements however many products a seller has.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class ProductArchiveTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CartCache cartCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void archivedProductIsHiddenAndLeavesCarts() throws Exception {
+        long sellerId = seller("pa_single").get("seller_id").asLong();
+        long productId = product(sellerId);
+        String token = customer("pa_single_buyer");
+        post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":2}", token);
+        cartCache.flushAndEvict();
+        mvc.perform(get("/api/products/" + productId)).andExpect(status().isOk());
+
+        mvc.perform(delete("/api/products/" + productId)).andExpect(status().isOk());
+
+        mvc.perform(get("/api/products/" + productId)).andExpect(status().isNotFound());
+        mvc.perform(delete("/api/products/" + productId)).andExpect(status().isNotFound());
+        assertEquals(0, cartLines(productId));
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM product WHERE product_id = ? AND deleted_at IS NOT NULL", Integer.class, productId));
+    }
+
+    @Test
+    void sellerArchiveAndPurgeAreSetBased() throws Exception {
+        JsonNode smallSeller = seller("pa_small");
+        JsonNode largeSeller = seller("pa_large");
+        long small = smallSeller.get("seller_id").asLong();
+        long large = largeSeller.get("seller_id").asLong();
+        for (int i = 0; i < 2; i++) product(small);
+        long sold = product(large);
+        for (int i = 0; i < 9; i++) product(large);
+
+        String token = customer("pa_buyer");
+        post("/api/cart/add", "{\"productId\":" + sold + ",\"quantity\":1}", token);
+        post("/api/cart/checkout", "{\"paymentMethod\":\"COD\",\"shippingAddress\":\"a\",\"totalAmount\":10}", token);
+
+        MvcResult smallArchive = mvc.perform(delete("/api/products/seller/" + small).header("Authorization", bearer(smallSeller)))
+            .andExpect(status().isOk()).andReturn();
+        MvcResult largeArchive = mvc.perform(delete("/api/products/seller/" + large).header("Authorization", bearer(largeSeller)))
+            .andExpect(status().isOk()).andReturn();
+        assertEquals(10, objectMapper.readTree(largeArchive.getResponse().getContentAsString()).get("archived").asInt());
+        queryCount().exactly(QueryCountMatchers.of(smallArchive)).match(largeArchive);
+
+        JsonNode listing = objectMapper.readTree(mvc.perform(get("/api/products/seller/" + large))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals(0, listing.size());
+
+        // The sold product stays behind for the order that refers to it
+        JsonNode purged = objectMapper.readTree(mvc.perform(delete("/api/products/seller/" + large + "/archived")
+                .header("Authorization", bearer(largeSeller)))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+        assertEquals(9, purged.get("purged").asInt());
+        assertEquals(List.of(sold), jdbcTemplate.queryForList(
+            "SELECT product_id FROM product WHERE seller_id = ?", Long.class, large));
+    }
+
+    @Test
+    void onlyTheSellerCanArchiveOrPurgeTheirProducts() throws Exception {
+        JsonNode owner = seller("pa_owner");
+        JsonNode other = seller("pa_intruder");
+        long sellerId = owner.get("seller_id").asLong();
+        product(sellerId);
+
+        for (String uri : List.of("/api/products/seller/" + sellerId, "/api/products/seller/" + sellerId + "/archived")) {
+            mvc.perform(delete(uri)).andExpect(status().isForbidden());
+            mvc.perform(delete(uri).header("Authorization", bearer(other))).andExpect(status().isForbidden());
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM product WHERE seller_id = ? AND deleted_at IS NOT NULL", Integer.class, sellerId));
+
+        mvc.perform(delete("/api/products/seller/" + sellerId).header("Authorization", bearer(owner)))
+            .andExpect(status().isOk());
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM product WHERE seller_id = ? AND deleted_at IS NOT NULL", Integer.class, sellerId));
+    }
+
+    private static String bearer(JsonNode login) {
+        return "Bearer " + login.get("token").asText();
+    }
+
+    private int cartLines(long productId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_item WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private JsonNode seller(String username) throws Exception {
+        post("/api/auth/register", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"" + username + "\"}", null);
+        return post("/api/auth/login", "{\"username\":\"" + username + "\",\"password\":\"pw\"}", null);
+    }
+
+    private long product(long sellerId) throws Exception {
+        return post("/api/products", "{\"name\":\"pa product\",\"price\":10,\"stock\":100,\"seller_id\":" + sellerId
+            + ",\"category\":\"pa\"}", null).get("product_id").asLong();
+    }
+
+    private String customer(String username) throws Exception {
+        post("/api/auth/register", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@test\","
+            + "\"password\":\"pw\",\"shipping_address\":\"a\"}", null);
+        return post("/api/auth/login", "{\"username\":\"" + username + "\",\"password\":\"pw\"}", null).get("token").asText();
+    }
+
+    private JsonNode post(String uri, String body, String token) throws Exception {
+        var request = MockMvcRequestBuilders.post(uri)
+            .contentType(MediaType.APPLICATION_JSON).content(body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        String response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
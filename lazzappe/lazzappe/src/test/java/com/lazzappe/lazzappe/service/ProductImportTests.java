@@ -0,0 +1,230 @@
+package com.lazzappe.lazzappe.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lazzappe.lazzappe.entity.Seller;
+import com.lazzappe.lazzappe.repository.SellerRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Bulk import keeps the good rows across batches, reports the bad ones by line, and
+ * reads back what the export writes. Both are for the seller only.
+ */
+@SpringBootTest(properties = {
+    "lazzappe.import.batch-size=3"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProductImportTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    // Login token by seller id
+    private final Map<Long, String> tokens = new HashMap<>();
+
+    private long sellerId;
+    private long copySellerId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        sellerId = seller("pi_seller");
+        copySellerId = seller("pi_copy");
+    }
+
+    @Test
+    void csvImportReportsBadRowsAndExportRoundTrips() throws Exception {
+        String csv = "name,price,stock,description,category\n"
+            + "Mug,4.50,10,\"Holds \"\"coffee\"\", tea\nand more\",kitchen\n"
+            + "Plate,3,5,,kitchen\n"
+            + ",1,1,,kitchen\n"
+            + "Bowl,abc,1,,kitchen\n"
+            + "Spoon,1,-2,,kitchen\n"
+            + "Fork,1.25,7,,kitchen\n"
+            + "\n"
+            + "Knife,2,3,,kitchen\n";
+        JsonNode result = upload(sellerId, "text/csv", csv);
+        assertEquals(4, result.get("imported").asInt());
+        assertEquals(3, result.get("failed").asInt());
+        // The quoted description spans lines 2 and 3
+        assertEquals(5, result.get("errors").get(0).get("line").asInt());
+        assertEquals(6, result.get("errors").get(1).get("line").asInt());
+        assertEquals(7, result.get("errors").get(2).get("line").asInt());
+
+        JsonNode listing = objectMapper.readTree(streamed("/api/products/seller/" + sellerId));
+        assertEquals(4, listing.size());
+        assertEquals("Holds \"coffee\", tea\nand more", listing.get(0).get("description").asText());
+
+        String exported = export(sellerId, "csv");
+        assertTrue(exported.startsWith(ProductCsv.HEADER + "\n"));
+        JsonNode copy = upload(copySellerId, "text/csv", exported);
+        assertEquals(4, copy.get("imported").asInt());
+        assertEquals(0, copy.get("failed").asInt());
+        assertEquals(withoutIds(exported), withoutIds(export(copySellerId, "csv")));
+    }
+
+    @Test
+    void ndjsonImport() throws Exception {
+        long seller = seller("pi_ndjson");
+        String ndjson = "{\"name\":\"Lamp\",\"price\":12.99,\"stock\":2,\"image_url\":null}\n"
+            + "not json\n"
+            + "[1,2]\n"
+            + "{\"name\":\"Desk\",\"price\":\"80\",\"stock\":1,\"category\":\"office\"}\n";
+        JsonNode result = upload(seller, "application/x-ndjson", ndjson);
+        assertEquals(2, result.get("imported").asInt());
+        assertEquals(2, result.get("failed").asInt());
+
+        String[] lines = export(seller, "ndjson").split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Lamp", objectMapper.readTree(lines[0]).get("name").asText());
+        assertEquals("office", objectMapper.readTree(lines[1]).get("category").asText());
+    }
+
+    @Test
+    void formulaTextIsGuardedInTheExport() throws Exception {
+        long seller = seller("pi_formula");
+        String csv = "name,price,stock,description,category\n"
+            + "=HYPERLINK(1),1,1,-50% today,@home\n"
+            + "''=kept apostrophe,1,1,+1 ok,kitchen\n";
+        assertEquals(2, upload(seller, "text/csv", csv).get("imported").asInt());
+
+        String exported = export(seller, "csv");
+        assertTrue(exported.contains(",'=HYPERLINK(1),'-50% today,"), exported);
+        assertTrue(exported.contains(",'@home,"), exported);
+        assertTrue(exported.contains(",''=kept apostrophe,'+1 ok,"), exported);
+
+        long copy = seller("pi_formula_copy");
+        upload(copy, "text/csv", exported);
+        assertEquals(withoutIds(exported), withoutIds(export(copy, "csv")));
+        JsonNode listing = objectMapper.readTree(streamed("/api/products/seller/" + copy));
+        assertEquals("=HYPERLINK(1)", listing.get(0).get("name").asText());
+        assertEquals("'=kept apostrophe", listing.get(1).get("name").asText());
+    }
+
+    @Test
+    void interruptedUploadReportsWhatWasImported() throws Exception {
+        long sellerId = seller("pi_broken");
+        Seller seller = sellerRepository.findById(sellerId).orElseThrow();
+        // Four rows arrive, then the connection drops
+        Reader broken = new StringReader("name,price,stock\nA,1,1\nB,1,1\nC,1,1\nD,1,1\nE,1") {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read == -1) throw new IOException("connection reset");
+                return read;
+            }
+        };
+
+        ProductImportService.ImportResult result = productImportService.importCsv(seller, broken);
+        assertFalse(result.complete());
+        assertEquals(4, result.imported());
+        assertEquals(6, result.errors().get(0).line());
+        assertEquals(4, objectMapper.readTree(streamed("/api/products/seller/" + sellerId)).size());
+    }
+
+    @Test
+    void onlyTheSellerImportsAndExports() throws Exception {
+        String importUri = "/api/products/seller/" + sellerId + "/import";
+        String exportUri = "/api/products/seller/" + sellerId + "/export";
+        mvc.perform(MockMvcRequestBuilders.post(importUri).contentType("text/csv").content("name,price,stock\nX,1,1\n"))
+            .andExpect(status().isForbidden());
+        mvc.perform(MockMvcRequestBuilders.post(importUri).header("Authorization", bearer(copySellerId))
+                .contentType("text/csv").content("name,price,stock\nX,1,1\n"))
+            .andExpect(status().isForbidden());
+        mvc.perform(get(exportUri)).andExpect(status().isForbidden());
+        mvc.perform(get(exportUri).header("Authorization", bearer(copySellerId))).andExpect(status().isForbidden());
+
+        // Unknown sellers are not found either way
+        mvc.perform(get("/api/products/seller/999999/export").header("Authorization", bearer(sellerId)))
+            .andExpect(status().isNotFound());
+        mvc.perform(MockMvcRequestBuilders.post("/api/products/seller/999999/import").header("Authorization", bearer(sellerId))
+                .contentType("text/csv").content("name,price,stock\n"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void unsupportedUploadIsRefused() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/api/products/seller/" + sellerId + "/import").header("Authorization", bearer(sellerId))
+            .contentType(MediaType.APPLICATION_XML).content("<products/>"))
+            .andExpect(status().isUnsupportedMediaType());
+        mvc.perform(MockMvcRequestBuilders.post("/api/products/seller/" + sellerId + "/import").header("Authorization", bearer(sellerId))
+            .contentType("text/csv").content("title,cost\n"))
+            .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode upload(long seller, String contentType, String body) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post("/api/products/seller/" + seller + "/import")
+                .header("Authorization", bearer(seller)).contentType(contentType).content(body))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private String export(long seller, String format) throws Exception {
+        return streamed(get("/api/products/seller/" + seller + "/export?format=" + format).header("Authorization", bearer(seller)));
+    }
+
+    private String streamed(String uri) throws Exception {
+        return streamed(get(uri));
+    }
+
+    private String streamed(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult async = mvc.perform(request).andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(async))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+    }
+
+    // Rows as CSV text, minus the product ids and timestamps that differ between copies
+    private static String withoutIds(String csv) {
+        return csv.replaceAll("(?m)^\\d+,", "").replaceAll(",[^,\\n]*\\n", "\n");
+    }
+
+    private String bearer(long seller) {
+        return "Bearer " + tokens.get(seller);
+    }
+
+    private long seller(String username) throws Exception {
+        post("/api/auth/register", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"" + username + "\"}");
+        JsonNode login = post("/api/auth/login", "{\"username\":\"" + username + "\",\"password\":\"pw\"}");
+        tokens.put(login.get("seller_id").asLong(), login.get("token").asText());
+        return login.get("seller_id").asLong();
+    }
+
+    private JsonNode post(String uri, String body) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post(uri)
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}
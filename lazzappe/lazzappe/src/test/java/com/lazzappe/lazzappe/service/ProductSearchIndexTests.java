@@ -0,0 +1,95 @@
+package com.lazzappe.lazzappe.service;
+
+import com.lazzappe.lazzappe.dto.ProductView;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ranking, typo matching and facets of the in-memory index, without the database: the
+ * products are indexed the way the write paths do it.
+ */
+class ProductSearchIndexTests {
+
+    // Only the startup build uses the transaction manager
+    private final ProductSearchIndex index = new ProductSearchIndex(new DataSourceTransactionManager());
+
+    @Test
+    void exactOutranksPrefixOutranksTypo() {
+        index.index(product(1L, "lamp", null, 10));
+        index.index(product(2L, "lampshade", null, 10));
+        index.index(product(3L, "table", null, 10));
+
+        // lamp exactly, lampshade by prefix
+        assertEquals(List.of(1L, 2L), ids(search("lamp")));
+        // lampshade by prefix, lamp one deletion away
+        assertEquals(List.of(2L, 1L), ids(search("lamps")));
+    }
+
+    @Test
+    void oneEditTyposMatch() {
+        index.index(product(1L, "table", null, 10));
+        index.index(product(2L, "chair", null, 10));
+
+        assertEquals(List.of(1L), ids(search("tabel")));  // adjacent swap
+        assertEquals(List.of(1L), ids(search("tablle"))); // insert
+        assertEquals(List.of(1L), ids(search("tabe")));   // delete
+        assertEquals(List.of(1L), ids(search("tavle")));  // substitute
+        assertEquals(List.of(), ids(search("tbael")));    // two edits
+    }
+
+    @Test
+    void shortTermsDoNotFuzz() {
+        index.index(product(1L, "cup", null, 10));
+
+        assertEquals(List.of(1L), ids(search("cup")));
+        assertEquals(List.of(), ids(search("cpu")));
+        assertEquals(List.of(), ids(search("cap")));
+    }
+
+    @Test
+    void facetsIgnoreCategoryFilterButNotPriceRange() {
+        index.index(product(1L, "pot", "kitchen", 10));
+        index.index(product(2L, "pot", "kitchen", 50));
+        index.index(product(3L, "pot", "garden", 20));
+
+        ProductSearchIndex.SearchResult result =
+            index.search("pot", "garden", new BigDecimal("5"), new BigDecimal("30"), 0, 10);
+        assertEquals(1, result.total());
+        assertEquals(List.of(3L), ids(result));
+        assertEquals(Map.of("garden", 1, "kitchen", 1), result.categoryCounts());
+    }
+
+    @Test
+    void removeAndStockTakenShowInResults() {
+        index.index(product(1L, "kettle", null, 10));
+        index.index(product(2L, "kettle", null, 10));
+
+        index.remove(1L);
+        index.stockTaken(Map.of(2L, 2, 3L, 1));
+
+        ProductSearchIndex.SearchResult result = search("kettle");
+        assertEquals(List.of(2L), ids(result));
+        assertEquals(3, result.items().get(0).stock());
+    }
+
+    private ProductSearchIndex.SearchResult search(String query) {
+        return index.search(query, null, null, null, 0, 10);
+    }
+
+    private static List<Long> ids(ProductSearchIndex.SearchResult result) {
+        List<Long> ids = new ArrayList<>();
+        for (ProductView view : result.items()) ids.add(view.productId());
+        return ids;
+    }
+
+    private static ProductView product(Long id, String name, String category, int price) {
+        return new ProductView(id, name, null, BigDecimal.valueOf(price), 5, null, category, 1L, 1L, null);
+    }
+}
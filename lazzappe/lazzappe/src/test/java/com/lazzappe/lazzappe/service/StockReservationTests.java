@@ -0,0 +1,148 @@
+package com.lazzappe.lazzappe.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Stock is never oversold: concurrent checkouts for the last units get exactly the units
+ * there are, and a checkout that cannot cover one line gives back the lines it reserved.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StockReservationTests {
+
+    private static final int BUYERS = 8;
+    private static final int STOCK = 3;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long sellerId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        post("/api/auth/register", "{\"username\":\"sr_seller\",\"email\":\"sr_seller@test\",\"password\":\"pw\","
+            + "\"shipping_address\":\"a\",\"register_as_seller\":true,\"store_name\":\"sr\"}", null);
+        sellerId = post("/api/auth/login", "{\"username\":\"sr_seller\",\"password\":\"pw\"}", null).get("seller_id").asLong();
+    }
+
+    @Test
+    void concurrentCheckoutsTakeExactlyTheStock() throws Exception {
+        long productId = product(STOCK);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            String token = customer("sr_buyer" + i);
+            post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":1}", token);
+            tokens.add(token);
+        }
+
+        int placed = 0;
+        ExecutorService buyers = Executors.newFixedThreadPool(BUYERS);
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Integer>> checkouts = new ArrayList<>();
+            for (String token : tokens) {
+                Callable<Integer> checkout = () -> {
+                    go.await();
+                    return mvc.perform(MockMvcRequestBuilders.post("/api/cart/checkout")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"paymentMethod\":\"COD\",\"shippingAddress\":\"a\",\"totalAmount\":10}")
+                            .header("Authorization", "Bearer " + token))
+                        .andReturn().getResponse().getStatus();
+                };
+                checkouts.add(buyers.submit(checkout));
+            }
+            go.countDown();
+            for (Future<Integer> checkout : checkouts) {
+                int status = checkout.get();
+                if (status == 200) {
+                    placed++;
+                } else {
+                    assertEquals(400, status);
+                }
+            }
+        } finally {
+            buyers.shutdown();
+        }
+
+        assertEquals(STOCK, placed);
+        assertEquals(0, stock(productId));
+        assertEquals(STOCK, jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(quantity), 0) FROM order_item WHERE product_id = ?", Integer.class, productId));
+    }
+
+    @Test
+    void shortLineRollsBackTheLinesReservedBeforeIt() throws Exception {
+        // Reserved in product id order, so the plentiful product is taken first
+        long plentiful = product(5);
+        long scarce = product(1);
+
+        InsufficientStockException e = assertThrows(InsufficientStockException.class, () ->
+            inventoryService.inTransactionWithRetry(() -> {
+                inventoryService.reserve(Map.of(plentiful, 2, scarce, 2), List.of(sellerId));
+                return null;
+            }));
+        assertEquals(scarce, e.getProductId());
+        assertEquals(2, e.getRequested());
+
+        assertEquals(5, stock(plentiful));
+        assertEquals(1, stock(scarce));
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private long product(int stock) throws Exception {
+        return post("/api/products", "{\"name\":\"sr product\",\"price\":10,\"stock\":" + stock + ",\"seller_id\":" + sellerId
+            + ",\"category\":\"sr\"}", null).get("product_id").asLong();
+    }
+
+    private String customer(String username) throws Exception {
+        post("/api/auth/register", "{\"username\":\"" + username + "\",\"email\":\"" + username + "@test\","
+            + "\"password\":\"pw\",\"shipping_address\":\"a\"}", null);
+        return post("/api/auth/login", "{\"username\":\"" + username + "\",\"password\":\"pw\"}", null).get("token").asText();
+    }
+
+    private JsonNode post(String uri, String body, String token) throws Exception {
+        var request = MockMvcRequestBuilders.post(uri)
+            .contentType(MediaType.APPLICATION_JSON).content(body);
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        String response = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+}